@@ -1,16 +1,33 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.CursorPage;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.LikeOperationResult;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.LikeBatchService;
 
 import javax.validation.Valid;
 import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+import javax.validation.constraints.PositiveOrZero;
 import javax.validation.constraints.Size;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Slf4j
 @Validated
@@ -20,16 +37,58 @@ import java.util.*;
 public class FilmController {
 
     private final FilmService filmService;
+    private final LikeBatchService likeBatchService;
+    private final ObjectMapper objectMapper;
     private static final String ERROR_MESSAGE_SEARCH_FILM =
             "Допустимые значения: director, title. Либо оба значения через запятую.";
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+    private static final int MAX_LIKE_OPERATIONS = 10_000;
 
     @GetMapping
-    public List<Film> getFilms() {
-        log.info("Пришел GET-запрос /films");
+    public ResponseEntity<List<Film>> getFilms(
+            @RequestParam(value = "after", defaultValue = "0") @PositiveOrZero int after,
+            @RequestParam(value = "limit", required = false) @Positive Integer limit
+    ) {
+        log.info("Пришел GET-запрос /films?after={}&limit={}", after, limit);
+
+        CursorPage<Film> page = filmService.findPage(after, limit);
+        log.info("Ответ на GET-запрос /films?after={}&limit={} с телом={}, следующий курсор={}",
+                after, limit, page.getItems(), page.getNextCursor());
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(page.getNextCursor()));
+        }
+        return response.body(page.getItems());
+    }
 
-        List<Film> films = filmService.findAll();
-        log.info("Ответ на GET-запрос /films с телом={}", films);
-        return films;
+    @GetMapping(value = "/export", produces = NDJSON_MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> exportFilms() {
+        log.info("Пришел GET-запрос /films/export");
+
+        StreamingResponseBody body = outputStream -> {
+            ObjectWriter writer = objectMapper.writerFor(Film.class);
+            OutputStream out = new BufferedOutputStream(outputStream);
+            AtomicInteger exported = new AtomicInteger();
+            try {
+                filmService.exportFilms(film -> {
+                    try {
+                        out.write(writer.writeValueAsBytes(film));
+                        out.write('\n');
+                        exported.incrementAndGet();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            out.flush();
+            log.info("Ответ на GET-запрос /films/export: выгружено фильмов={}", exported.get());
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON_MEDIA_TYPE))
+                .body(body);
     }
 
     @GetMapping("/{id}")
@@ -66,16 +125,28 @@ public class FilmController {
             return commonFilms;
         }
 
+    @GetMapping("/together")
+    public List<Film> getFilmsToWatchTogether(@RequestParam @Size(min = 1, max = 100) List<Integer> userIds) {
+        log.info("Пришел GET-запрос /films/together?userIds={}", userIds);
+
+        List<Film> commonFilms = filmService.getCommonFilms(userIds);
+        log.info("Ответ на GET-запрос /films/together?userIds={} с телом={}", userIds, commonFilms);
+        return commonFilms;
+    }
+
     @GetMapping("/director/{directorId}")
     public List<Film> getTopFilmsOfDirectorByLikesOrReleaseYear(
             @PathVariable int directorId,
-            @RequestParam(value = "sortBy", defaultValue = "") @NotBlank String sortBy
+            @RequestParam(value = "sortBy", defaultValue = "") @NotBlank String sortBy,
+            @RequestParam(value = "offset", defaultValue = "0") @PositiveOrZero int offset,
+            @RequestParam(value = "limit", required = false) @Positive Integer limit
     ) {
-        log.info("Пришел GET-запрос /films/director/{directorId={}}?sortBy={}", directorId, sortBy);
+        log.info("Пришел GET-запрос /films/director/{directorId={}}?sortBy={}&offset={}&limit={}",
+                directorId, sortBy, offset, limit);
 
-        List<Film> directorTopFilms = filmService.getDirectorFilmsByLikesOrYear(directorId, sortBy);
-        log.info("Ответ на GET-запрос /films/director/{directorId={}}?sortBy={} с телом={}",
-                directorId, sortBy, directorTopFilms
+        List<Film> directorTopFilms = filmService.getDirectorFilmsByLikesOrYear(directorId, sortBy, offset, limit);
+        log.info("Ответ на GET-запрос /films/director/{directorId={}}?sortBy={}&offset={}&limit={} с телом={}",
+                directorId, sortBy, offset, limit, directorTopFilms
         );
         return directorTopFilms;
     }
@@ -83,11 +154,12 @@ public class FilmController {
     @GetMapping("/search")
     public List<Film> searchFilms(
             @RequestParam @NotBlank String query,
-            @RequestParam @Size(min = 1, max = 2, message = ERROR_MESSAGE_SEARCH_FILM) List<String> by) {
-        log.info("Пришел GET-запрос /films/search?query={}&by={}", query, by);
+            @RequestParam @Size(min = 1, max = 2, message = ERROR_MESSAGE_SEARCH_FILM) List<String> by,
+            @RequestParam(value = "limit", required = false) @Positive Integer limit) {
+        log.info("Пришел GET-запрос /films/search?query={}&by={}&limit={}", query, by, limit);
 
-        List<Film> foundFilms = filmService.searchFilms(query, by);
-        log.info("Ответ на GET-запрос /films/search?query={}&by={} с телом={}", query, by, foundFilms);
+        List<Film> foundFilms = filmService.searchFilms(query, by, limit);
+        log.info("Ответ на GET-запрос /films/search?query={}&by={}&limit={} с телом={}", query, by, limit, foundFilms);
         return foundFilms;
     }
 
@@ -118,6 +190,17 @@ public class FilmController {
         return likedFilm;
     }
 
+    @PostMapping("/likes")
+    public List<LikeOperationResult> applyLikeOperations(
+            @RequestBody @NotNull @Size(max = MAX_LIKE_OPERATIONS) List<@NotNull LikeOperation> operations
+    ) {
+        log.info("Пришел POST-запрос /films/likes с {} операциями", operations.size());
+
+        List<LikeOperationResult> results = likeBatchService.applyLikeOperations(operations);
+        log.info("Ответ на POST-запрос /films/likes с телом={}", results);
+        return results;
+    }
+
     @DeleteMapping("/{filmId}")
     public void deleteFilmById(@PathVariable("filmId") int filmId) {
         log.info("Пришел DELETE-запрос /films/filmId={}", filmId);
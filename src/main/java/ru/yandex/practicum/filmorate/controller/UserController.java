@@ -2,32 +2,54 @@ package ru.yandex.practicum.filmorate.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.filmorate.model.CommonFriendsCount;
+import ru.yandex.practicum.filmorate.model.CursorPage;
 import ru.yandex.practicum.filmorate.model.Event;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FriendSuggestions;
+import ru.yandex.practicum.filmorate.model.Recommendations;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Positive;
+import javax.validation.constraints.PositiveOrZero;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
 
 @Slf4j
+@Validated
 @RestController
 @RequestMapping("/users")
 @RequiredArgsConstructor
 public class UserController {
 
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final UserService userService;
     private final FilmService filmService;
 
     @GetMapping
-    public List<User> getUsers() {
-        log.info("Пришел GET-запрос /users");
-
-        List<User> users = userService.findAll();
-        log.info("Ответ на GET-запрос /users с телом={}", users);
-        return users;
+    public ResponseEntity<List<User>> getUsers(
+            @RequestParam(value = "after", defaultValue = "0") @PositiveOrZero int after,
+            @RequestParam(value = "limit", required = false) @Positive Integer limit
+    ) {
+        log.info("Пришел GET-запрос /users?after={}&limit={}", after, limit);
+
+        CursorPage<User> page = userService.findPage(after, limit);
+        log.info("Ответ на GET-запрос /users?after={}&limit={} с телом={}, следующий курсор={}",
+                after, limit, page.getItems(), page.getNextCursor());
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(page.getNextCursor()));
+        }
+        return response.body(page.getItems());
     }
 
     @GetMapping("/{id}")
@@ -40,21 +62,39 @@ public class UserController {
     }
 
     @GetMapping("/{id}/friends")
-    public List<User> getFriendsOfUser(@PathVariable int id) {
-        log.info("Пришел GET-запрос /users/{id={}}/friends", id);
-
-        List<User> friends = userService.getFriendsOfUser(id);
-        log.info("Ответ на GET-запрос /users/{id={}}/friends с телом={}", id, friends);
-        return friends;
+    public ResponseEntity<List<User>> getFriendsOfUser(
+            @PathVariable int id,
+            @RequestParam(value = "after", defaultValue = "0") @PositiveOrZero int after,
+            @RequestParam(value = "limit", required = false) @Positive Integer limit
+    ) {
+        log.info("Пришел GET-запрос /users/{id={}}/friends?after={}&limit={}", id, after, limit);
+
+        CursorPage<User> page = userService.findFriendsPage(id, after, limit);
+        log.info("Ответ на GET-запрос /users/{id={}}/friends?after={}&limit={} с телом={}, следующий курсор={}",
+                id, after, limit, page.getItems(), page.getNextCursor());
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(page.getNextCursor()));
+        }
+        return response.body(page.getItems());
     }
 
     @GetMapping("/{id}/feed")
-    public List<Event> getUserFeed(@PathVariable int id) {
-        log.info("Пришел GET-запрос /users/{id={}}/feed", id);
-
-        List<Event> events = userService.getUserFeed(id);
-        log.info("Ответ на GET-запрос /users/{id={}}/feed с телом={}", id, events);
-        return events;
+    public ResponseEntity<List<Event>> getUserFeed(
+            @PathVariable int id,
+            @RequestParam(value = "before", required = false) @Positive Integer before,
+            @RequestParam(value = "limit", required = false) @Positive Integer limit
+    ) {
+        log.info("Пришел GET-запрос /users/{id={}}/feed?before={}&limit={}", id, before, limit);
+
+        CursorPage<Event> page = userService.getUserFeed(id, before, limit);
+        log.info("Ответ на GET-запрос /users/{id={}}/feed?before={}&limit={} с телом={}, следующий курсор={}",
+                id, before, limit, page.getItems(), page.getNextCursor());
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(page.getNextCursor()));
+        }
+        return response.body(page.getItems());
     }
 
     @GetMapping("/{id}/friends/common/{otherId}")
@@ -68,13 +108,47 @@ public class UserController {
         return intersection;
     }
 
-    @GetMapping("/{id}/recommendations")
-    public List<Film> getRecommendedFilms(@PathVariable("id") int userId) {
-        log.info("Пришел GET-запрос /users/{id={}}/recommendations", userId);
+    @GetMapping("/{id}/friends/common/{otherId}/count")
+    public CommonFriendsCount countCommonFriends(@PathVariable int id, @PathVariable int otherId) {
+        log.info("Пришел GET-запрос /users/{id={}}/friends/common/{otherId={}}/count", id, otherId);
 
-        List<Film> recommendedFilms = filmService.getRecommendedFilms(userId);
-        log.info("Ответ на GET-запрос /users/{id={}}/recommendations с телом={}", userId, recommendedFilms);
-        return recommendedFilms;
+        CommonFriendsCount count = userService.countCommonFriends(id, otherId);
+        log.info("Ответ на GET-запрос /users/{id={}}/friends/common/{otherId={}}/count с телом={}",
+                id, otherId, count);
+        return count;
+    }
+
+    @GetMapping("/{id}/friends/suggestions")
+    public ResponseEntity<List<User>> getFriendSuggestions(
+            @PathVariable int id,
+            @RequestParam(value = "limit", required = false) @Positive Integer limit
+    ) {
+        log.info("Пришел GET-запрос /users/{id={}}/friends/suggestions?limit={}", id, limit);
+
+        FriendSuggestions suggestions = userService.suggestFriends(id, limit);
+        log.info("Ответ на GET-запрос /users/{id={}}/friends/suggestions с телом={}, неполный={}",
+                id, suggestions.getUsers(), suggestions.isPartial());
+        return ResponseEntity.ok()
+                .header("X-Suggestions-Partial", String.valueOf(suggestions.isPartial()))
+                .body(suggestions.getUsers());
+    }
+
+    @GetMapping("/{id}/recommendations")
+    public ResponseEntity<List<Film>> getRecommendedFilms(
+            @PathVariable("id") int userId,
+            @RequestParam(value = "neighbours", required = false) @Positive Integer neighbours
+    ) {
+        log.info("Пришел GET-запрос /users/{id={}}/recommendations?neighbours={}", userId, neighbours);
+
+        Recommendations recommendations = filmService.getRecommendedFilms(userId, neighbours);
+        List<Film> recommendedFilms = recommendations.getFilms();
+        final long age = Duration.between(recommendations.getComputedAt(), Instant.now()).toSeconds();
+        log.info("Ответ на GET-запрос /users/{id={}}/recommendations с телом={}, возраст={} с, устарели={}",
+                userId, recommendedFilms, age, recommendations.isStale());
+        return ResponseEntity.ok()
+                .header(HttpHeaders.AGE, String.valueOf(Math.max(0, age)))
+                .header("X-Recommendations-Stale", String.valueOf(recommendations.isStale()))
+                .body(recommendedFilms);
     }
 
     @PostMapping
@@ -0,0 +1,262 @@
+package ru.yandex.practicum.filmorate.index;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Value;
+import lombok.With;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.repository.FilmRepository;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Slf4j
+@Component
+public class FilmPopularityIndex {
+
+    private static final Comparator<Entry> BY_LIKES_DESC = Comparator.comparingInt(Entry::getLikes).reversed()
+            .thenComparingInt(Entry::getFilmId);
+
+    // Приблизительные размеры объектов в куче (64-bit JVM со сжатыми указателями)
+    private static final long ENTRY_BYTES = 32;
+    private static final long INT_ARRAY_HEADER_BYTES = 16;
+    private static final long HASH_MAP_NODE_BYTES = 48;
+    private static final long TREE_MAP_NODE_BYTES = 40;
+
+    private final FilmRepository filmRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, Entry> entryByFilmId = new HashMap<>();
+    private final NavigableSet<Entry> all = new TreeSet<>(BY_LIKES_DESC);
+    private final Map<Integer, NavigableSet<Entry>> byGenre = new HashMap<>();
+    private final Map<Integer, NavigableSet<Entry>> byYear = new HashMap<>();
+    private final Map<Long, NavigableSet<Entry>> byGenreAndYear = new HashMap<>();
+    private long orderedNodes;
+
+    public FilmPopularityIndex(
+            @Qualifier("filmRepositoryImpl") FilmRepository filmRepository,
+            MeterRegistry meterRegistry
+    ) {
+        this.filmRepository = filmRepository;
+
+        Gauge.builder("filmorate.popularity.index.memory", this, FilmPopularityIndex::estimateMemoryBytes)
+                .description("Приблизительный объем памяти индекса популярности фильмов")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("filmorate.popularity.index.films", this, FilmPopularityIndex::size)
+                .description("Количество фильмов в индексе популярности")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        List<Film> films = filmRepository.findAll();
+
+        lock.writeLock().lock();
+        try {
+            entryByFilmId.clear();
+            all.clear();
+            byGenre.clear();
+            byYear.clear();
+            byGenreAndYear.clear();
+            orderedNodes = 0;
+            for (Film film : films) {
+                insert(makeEntry(film, film.getAmountOfLikes()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Индекс популярности построен: фильмов={}, объем≈{} байт", size(), estimateMemoryBytes());
+    }
+
+    public void putFilm(Film film) {
+        lock.writeLock().lock();
+        try {
+            Entry previous = entryByFilmId.get(film.getId());
+            final int likes = previous == null ? 0 : previous.getLikes();
+            if (previous != null) {
+                remove(previous);
+            }
+            insert(makeEntry(film, likes));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void changeLikes(int filmId, int delta) {
+        if (delta == 0) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Entry previous = entryByFilmId.get(filmId);
+            if (previous == null) {
+                log.warn("Фильм id={} отсутствует в индексе популярности, изменение лайков пропущено", filmId);
+                return;
+            }
+            remove(previous);
+            insert(previous.withLikes(Math.max(0, previous.getLikes() + delta)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeFilm(int filmId) {
+        lock.writeLock().lock();
+        try {
+            Entry previous = entryByFilmId.get(filmId);
+            if (previous != null) {
+                remove(previous);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Integer> findTopFilmIds(int genreId, int year, int count) {
+        lock.readLock().lock();
+        try {
+            NavigableSet<Entry> entries;
+            if (genreId > 0 && year > 0) {
+                entries = byGenreAndYear.get(genreAndYearKey(genreId, year));
+            } else if (genreId > 0) {
+                entries = byGenre.get(genreId);
+            } else if (year > 0) {
+                entries = byYear.get(year);
+            } else {
+                entries = all;
+            }
+
+            List<Integer> filmIds = new ArrayList<>();
+            if (entries == null) {
+                return filmIds;
+            }
+            for (Entry entry : entries) {
+                if (filmIds.size() >= count) {
+                    break;
+                }
+                filmIds.add(entry.getFilmId());
+            }
+            return filmIds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Integer> sortByLikes(int[] filmIds) {
+        lock.readLock().lock();
+        try {
+            List<Entry> entries = new ArrayList<>(filmIds.length);
+            for (int filmId : filmIds) {
+                Entry entry = entryByFilmId.get(filmId);
+                entries.add(entry != null ? entry : new Entry(filmId, 0, 0, new int[0]));
+            }
+            entries.sort(BY_LIKES_DESC);
+            List<Integer> sortedFilmIds = new ArrayList<>(entries.size());
+            entries.forEach(entry -> sortedFilmIds.add(entry.getFilmId()));
+            return sortedFilmIds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entryByFilmId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long estimateMemoryBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = 0;
+            for (Entry entry : entryByFilmId.values()) {
+                bytes += ENTRY_BYTES + INT_ARRAY_HEADER_BYTES + Integer.BYTES * (long) entry.getGenreIds().length;
+            }
+            bytes += HASH_MAP_NODE_BYTES * entryByFilmId.size();
+            bytes += TREE_MAP_NODE_BYTES * orderedNodes;
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void insert(Entry entry) {
+        entryByFilmId.put(entry.getFilmId(), entry);
+        addTo(all, entry);
+        if (entry.getYear() > 0) {
+            addTo(byYear.computeIfAbsent(entry.getYear(), year -> new TreeSet<>(BY_LIKES_DESC)), entry);
+        }
+        for (int genreId : entry.getGenreIds()) {
+            addTo(byGenre.computeIfAbsent(genreId, id -> new TreeSet<>(BY_LIKES_DESC)), entry);
+            if (entry.getYear() > 0) {
+                addTo(byGenreAndYear.computeIfAbsent(genreAndYearKey(genreId, entry.getYear()),
+                        key -> new TreeSet<>(BY_LIKES_DESC)), entry);
+            }
+        }
+    }
+
+    private void remove(Entry entry) {
+        entryByFilmId.remove(entry.getFilmId());
+        removeFrom(all, entry);
+        if (entry.getYear() > 0) {
+            removeFrom(byYear.get(entry.getYear()), entry);
+        }
+        for (int genreId : entry.getGenreIds()) {
+            removeFrom(byGenre.get(genreId), entry);
+            if (entry.getYear() > 0) {
+                removeFrom(byGenreAndYear.get(genreAndYearKey(genreId, entry.getYear())), entry);
+            }
+        }
+    }
+
+    private void addTo(NavigableSet<Entry> entries, Entry entry) {
+        if (entries.add(entry)) {
+            orderedNodes++;
+        }
+    }
+
+    private void removeFrom(NavigableSet<Entry> entries, Entry entry) {
+        if (entries != null && entries.remove(entry)) {
+            orderedNodes--;
+        }
+    }
+
+    private static long genreAndYearKey(int genreId, int year) {
+        return ((long) genreId << 32) | year;
+    }
+
+    private static Entry makeEntry(Film film, int likes) {
+        final int year = film.getReleaseDate() == null ? 0 : film.getReleaseDate().getYear();
+        final int[] genreIds = film.getGenres().stream()
+                .mapToInt(Genre::getId)
+                .distinct()
+                .toArray();
+        return new Entry(film.getId(), likes, year, genreIds);
+    }
+
+    @Value
+    private static class Entry {
+
+        int filmId;
+        @With
+        int likes;
+        int year;
+        int[] genreIds;
+    }
+}
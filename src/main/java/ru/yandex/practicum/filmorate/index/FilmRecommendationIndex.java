@@ -0,0 +1,246 @@
+package ru.yandex.practicum.filmorate.index;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.repository.LikeRepository;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Component
+public class FilmRecommendationIndex {
+
+    private static final Comparator<Neighbour> BY_MATCHES_DESC = Comparator.comparingInt(Neighbour::getMatches)
+            .reversed()
+            .thenComparingInt(Neighbour::getUserId);
+
+    private final LikeRepository likeRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, RoaringBitmap> filmIdsByUserId = new HashMap<>();
+    private final Map<Integer, RoaringBitmap> userIdsByFilmId = new HashMap<>();
+
+    public FilmRecommendationIndex(LikeRepository likeRepository, MeterRegistry meterRegistry) {
+        this.likeRepository = likeRepository;
+
+        Gauge.builder("filmorate.recommendation.index.memory", this, FilmRecommendationIndex::estimateMemoryBytes)
+                .description("Приблизительный объем памяти битовых карт лайков")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("filmorate.recommendation.index.users", this, FilmRecommendationIndex::size)
+                .description("Количество пользователей с лайками в индексе рекомендаций")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        Map<Integer, RoaringBitmap> filmIdsByUser = new HashMap<>();
+        Map<Integer, RoaringBitmap> userIdsByFilm = new HashMap<>();
+        likeRepository.forEachLike((filmId, userId) -> {
+            filmIdsByUser.computeIfAbsent(userId, id -> new RoaringBitmap()).add(filmId);
+            userIdsByFilm.computeIfAbsent(filmId, id -> new RoaringBitmap()).add(userId);
+        });
+        filmIdsByUser.values().forEach(RoaringBitmap::runOptimize);
+        userIdsByFilm.values().forEach(RoaringBitmap::runOptimize);
+
+        lock.writeLock().lock();
+        try {
+            filmIdsByUserId.clear();
+            filmIdsByUserId.putAll(filmIdsByUser);
+            userIdsByFilmId.clear();
+            userIdsByFilmId.putAll(userIdsByFilm);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Индекс рекомендаций построен: пользователей={}, объем≈{} байт", size(), estimateMemoryBytes());
+    }
+
+    public void addLike(int filmId, int userId) {
+        lock.writeLock().lock();
+        try {
+            filmIdsByUserId.computeIfAbsent(userId, id -> new RoaringBitmap()).add(filmId);
+            userIdsByFilmId.computeIfAbsent(filmId, id -> new RoaringBitmap()).add(userId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeLike(int filmId, int userId) {
+        lock.writeLock().lock();
+        try {
+            removeFrom(filmIdsByUserId, userId, filmId);
+            removeFrom(userIdsByFilmId, filmId, userId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeUser(int userId) {
+        lock.writeLock().lock();
+        try {
+            RoaringBitmap filmIds = filmIdsByUserId.remove(userId);
+            if (filmIds != null) {
+                filmIds.forEach((int filmId) -> removeFrom(userIdsByFilmId, filmId, userId));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeFilm(int filmId) {
+        lock.writeLock().lock();
+        try {
+            RoaringBitmap userIds = userIdsByFilmId.remove(filmId);
+            if (userIds != null) {
+                userIds.forEach((int userId) -> removeFrom(filmIdsByUserId, userId, filmId));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int[] findLikerIds(int filmId) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap userIds = userIdsByFilmId.get(filmId);
+            return userIds == null ? new int[0] : userIds.toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int[] findCommonFilmIds(Collection<Integer> userIds) {
+        lock.readLock().lock();
+        try {
+            List<RoaringBitmap> filmIds = new ArrayList<>(userIds.size());
+            for (int userId : userIds) {
+                RoaringBitmap userFilmIds = filmIdsByUserId.get(userId);
+                if (userFilmIds == null) {
+                    return new int[0];
+                }
+                filmIds.add(userFilmIds);
+            }
+            return filmIds.isEmpty() ? new int[0] : FastAggregation.and(filmIds.iterator()).toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Recommendation recommend(int userId, int neighbourCount) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap userFilmIds = filmIdsByUserId.get(userId);
+            List<Neighbour> neighbours = findNeighbours(userId, neighbourCount);
+            Map<Integer, Integer> scoreByFilmId = new HashMap<>();
+            for (Neighbour neighbour : neighbours) {
+                RoaringBitmap neighbourFilmIds = filmIdsByUserId.get(neighbour.getUserId());
+                RoaringBitmap.andNot(neighbourFilmIds, userFilmIds)
+                        .forEach((int filmId) -> scoreByFilmId.merge(filmId, neighbour.getMatches(), Integer::sum));
+            }
+            List<Integer> filmIds = scoreByFilmId.entrySet().stream()
+                    .sorted(Map.Entry.<Integer, Integer>comparingByValue().reversed()
+                            .thenComparing(Map.Entry.comparingByKey()))
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toList());
+            List<Integer> neighbourIds = neighbours.stream()
+                    .map(Neighbour::getUserId)
+                    .collect(Collectors.toList());
+            return new Recommendation(neighbourIds, filmIds);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return filmIdsByUserId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long estimateMemoryBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = 0;
+            for (RoaringBitmap filmIds : filmIdsByUserId.values()) {
+                bytes += filmIds.getLongSizeInBytes();
+            }
+            for (RoaringBitmap userIds : userIdsByFilmId.values()) {
+                bytes += userIds.getLongSizeInBytes();
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Кандидаты в соседи - только пользователи, лайкнувшие хотя бы один фильм пользователя,
+    // число совпадений считается пересечением битовых карт без материализации
+    private List<Neighbour> findNeighbours(int userId, int count) {
+        RoaringBitmap userFilmIds = filmIdsByUserId.get(userId);
+        if (userFilmIds == null || userFilmIds.isEmpty() || count <= 0) {
+            return new ArrayList<>();
+        }
+        List<RoaringBitmap> likers = new ArrayList<>(userFilmIds.getCardinality());
+        userFilmIds.forEach((int filmId) -> likers.add(userIdsByFilmId.get(filmId)));
+        RoaringBitmap candidateIds = FastAggregation.or(likers.iterator());
+        candidateIds.remove(userId);
+
+        PriorityQueue<Neighbour> top = new PriorityQueue<>(BY_MATCHES_DESC.reversed());
+        IntIterator candidates = candidateIds.getIntIterator();
+        while (candidates.hasNext()) {
+            final int candidateId = candidates.next();
+            final int matches = RoaringBitmap.andCardinality(userFilmIds, filmIdsByUserId.get(candidateId));
+            top.offer(new Neighbour(candidateId, matches));
+            if (top.size() > count) {
+                top.poll();
+            }
+        }
+        List<Neighbour> neighbours = new ArrayList<>(top);
+        neighbours.sort(BY_MATCHES_DESC);
+        return neighbours;
+    }
+
+    private static void removeFrom(Map<Integer, RoaringBitmap> bitmaps, int key, int value) {
+        RoaringBitmap bitmap = bitmaps.get(key);
+        if (bitmap == null) {
+            return;
+        }
+        bitmap.remove(value);
+        if (bitmap.isEmpty()) {
+            bitmaps.remove(key);
+        }
+    }
+
+    @Value
+    public static class Recommendation {
+
+        List<Integer> neighbourIds;
+        List<Integer> filmIds;
+    }
+
+    @Value
+    private static class Neighbour {
+
+        int userId;
+        int matches;
+    }
+}
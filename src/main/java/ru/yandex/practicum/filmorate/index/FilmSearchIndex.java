@@ -0,0 +1,288 @@
+package ru.yandex.practicum.filmorate.index;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.repository.DirectorRepository;
+import ru.yandex.practicum.filmorate.repository.FilmRepository;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Slf4j
+@Component
+public class FilmSearchIndex {
+
+    private static final int GRAM_LENGTH = 3;
+
+    private final FilmRepository filmRepository;
+    private final DirectorRepository directorRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, String> titleByFilmId = new HashMap<>();
+    private final Map<Long, RoaringBitmap> filmIdsByTitleGram = new HashMap<>();
+    private final Map<Integer, String> nameByDirectorId = new HashMap<>();
+    private final Map<Long, RoaringBitmap> directorIdsByNameGram = new HashMap<>();
+    private final Map<Integer, RoaringBitmap> filmIdsByDirectorId = new HashMap<>();
+    private final Map<Integer, int[]> directorIdsByFilmId = new HashMap<>();
+
+    public FilmSearchIndex(
+            @Qualifier("filmRepositoryImpl") FilmRepository filmRepository,
+            DirectorRepository directorRepository,
+            MeterRegistry meterRegistry
+    ) {
+        this.filmRepository = filmRepository;
+        this.directorRepository = directorRepository;
+
+        Gauge.builder("filmorate.search.index.memory", this, FilmSearchIndex::estimateMemoryBytes)
+                .description("Приблизительный объем памяти списков вхождений поискового индекса")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        List<Film> films = filmRepository.findAll();
+        List<Director> directors = directorRepository.findAll();
+
+        lock.writeLock().lock();
+        try {
+            titleByFilmId.clear();
+            filmIdsByTitleGram.clear();
+            nameByDirectorId.clear();
+            directorIdsByNameGram.clear();
+            filmIdsByDirectorId.clear();
+            directorIdsByFilmId.clear();
+            directors.forEach(this::insertDirector);
+            films.forEach(this::insertFilm);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Поисковый индекс построен: фильмов={}, режиссеров={}", films.size(), directors.size());
+    }
+
+    public void putFilm(Film film) {
+        lock.writeLock().lock();
+        try {
+            deleteFilm(film.getId());
+            insertFilm(film);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeFilm(int filmId) {
+        lock.writeLock().lock();
+        try {
+            deleteFilm(filmId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void putDirector(Director director) {
+        lock.writeLock().lock();
+        try {
+            String previousName = nameByDirectorId.get(director.getId());
+            if (previousName != null) {
+                removeText(director.getId(), previousName, directorIdsByNameGram);
+            }
+            insertDirector(director);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeDirector(int directorId) {
+        lock.writeLock().lock();
+        try {
+            String previousName = nameByDirectorId.remove(directorId);
+            if (previousName != null) {
+                removeText(directorId, previousName, directorIdsByNameGram);
+            }
+            RoaringBitmap filmIds = filmIdsByDirectorId.remove(directorId);
+            if (filmIds != null) {
+                filmIds.forEach((int filmId) -> directorIdsByFilmId.computeIfPresent(filmId,
+                        (id, directorIds) -> removeValue(directorIds, directorId)));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int[] findFilmIds(String query, boolean byTitle, boolean byDirector) {
+        final String normalizedQuery = normalize(query);
+        lock.readLock().lock();
+        try {
+            RoaringBitmap filmIds = new RoaringBitmap();
+            if (byTitle) {
+                filmIds.or(findMatches(normalizedQuery, titleByFilmId, filmIdsByTitleGram));
+            }
+            if (byDirector) {
+                findMatches(normalizedQuery, nameByDirectorId, directorIdsByNameGram)
+                        .forEach((int directorId) -> {
+                            RoaringBitmap directorFilmIds = filmIdsByDirectorId.get(directorId);
+                            if (directorFilmIds != null) {
+                                filmIds.or(directorFilmIds);
+                            }
+                        });
+            }
+            return filmIds.toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long estimateMemoryBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = 0;
+            for (RoaringBitmap filmIds : filmIdsByTitleGram.values()) {
+                bytes += filmIds.getLongSizeInBytes();
+            }
+            for (RoaringBitmap directorIds : directorIdsByNameGram.values()) {
+                bytes += directorIds.getLongSizeInBytes();
+            }
+            for (RoaringBitmap filmIds : filmIdsByDirectorId.values()) {
+                bytes += filmIds.getLongSizeInBytes();
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void insertFilm(Film film) {
+        final int filmId = film.getId();
+        if (film.getName() != null) {
+            String title = normalize(film.getName());
+            titleByFilmId.put(filmId, title);
+            addText(filmId, title, filmIdsByTitleGram);
+        }
+        int[] directorIds = film.getDirectors().stream()
+                .mapToInt(Director::getId)
+                .distinct()
+                .toArray();
+        if (directorIds.length > 0) {
+            directorIdsByFilmId.put(filmId, directorIds);
+            for (int directorId : directorIds) {
+                filmIdsByDirectorId.computeIfAbsent(directorId, id -> new RoaringBitmap()).add(filmId);
+            }
+        }
+    }
+
+    private void deleteFilm(int filmId) {
+        String title = titleByFilmId.remove(filmId);
+        if (title != null) {
+            removeText(filmId, title, filmIdsByTitleGram);
+        }
+        int[] directorIds = directorIdsByFilmId.remove(filmId);
+        if (directorIds != null) {
+            for (int directorId : directorIds) {
+                RoaringBitmap filmIds = filmIdsByDirectorId.get(directorId);
+                if (filmIds != null) {
+                    filmIds.remove(filmId);
+                    if (filmIds.isEmpty()) {
+                        filmIdsByDirectorId.remove(directorId);
+                    }
+                }
+            }
+        }
+    }
+
+    private void insertDirector(Director director) {
+        if (director.getName() == null) {
+            return;
+        }
+        String name = normalize(director.getName());
+        nameByDirectorId.put(director.getId(), name);
+        addText(director.getId(), name, directorIdsByNameGram);
+    }
+
+    // Триграммы запроса сужают круг кандидатов пересечением списков вхождений, но не гарантируют,
+    // что подстрока идет подряд, поэтому каждый кандидат проверяется по полному тексту.
+    // Запросы короче триграммы проверяются перебором нормализованных строк в памяти
+    private static RoaringBitmap findMatches(
+            String query, Map<Integer, String> textById, Map<Long, RoaringBitmap> idsByGram
+    ) {
+        RoaringBitmap matches = new RoaringBitmap();
+        if (query.length() < GRAM_LENGTH) {
+            textById.forEach((id, text) -> {
+                if (text.contains(query)) {
+                    matches.add(id);
+                }
+            });
+            return matches;
+        }
+
+        List<RoaringBitmap> postings = new ArrayList<>();
+        for (long gram : grams(query)) {
+            RoaringBitmap ids = idsByGram.get(gram);
+            if (ids == null) {
+                return matches;
+            }
+            postings.add(ids);
+        }
+        FastAggregation.and(postings.iterator()).forEach((int id) -> {
+            if (textById.get(id).contains(query)) {
+                matches.add(id);
+            }
+        });
+        return matches;
+    }
+
+    private static void addText(int id, String text, Map<Long, RoaringBitmap> idsByGram) {
+        for (long gram : grams(text)) {
+            idsByGram.computeIfAbsent(gram, key -> new RoaringBitmap()).add(id);
+        }
+    }
+
+    private static void removeText(int id, String text, Map<Long, RoaringBitmap> idsByGram) {
+        for (long gram : grams(text)) {
+            RoaringBitmap ids = idsByGram.get(gram);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    idsByGram.remove(gram);
+                }
+            }
+        }
+    }
+
+    private static long[] grams(String text) {
+        final int count = Math.max(0, text.length() - GRAM_LENGTH + 1);
+        long[] grams = new long[count];
+        for (int i = 0; i < count; i++) {
+            grams[i] = ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2);
+        }
+        return grams;
+    }
+
+    private static int[] removeValue(int[] values, int value) {
+        int[] remaining = new int[values.length];
+        int size = 0;
+        for (int v : values) {
+            if (v != value) {
+                remaining[size++] = v;
+            }
+        }
+        return size == 0 ? null : Arrays.copyOf(remaining, size);
+    }
+
+    private static String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+}
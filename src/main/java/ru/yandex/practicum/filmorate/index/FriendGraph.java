@@ -0,0 +1,506 @@
+package ru.yandex.practicum.filmorate.index;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.repository.FriendRepository;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+// Граф дружбы в памяти в формате CSR: отсортированные id владельцев, смещения их строк и один общий массив
+// отсортированных id друзей, то есть около 4 байт на связь. Изменения после последнего слияния лежат
+// в буфере строк, которые целиком заменяют строки CSR, и вливаются в него по расписанию или при переполнении
+@Slf4j
+@Component
+public class FriendGraph {
+
+    private static final int[] NO_IDS = new int[0];
+
+    // Кандидаты с большим числом общих друзей выше, при равенстве - с меньшим id
+    private static final Comparator<Candidate> BY_MUTUAL_DESC = Comparator.comparingInt(Candidate::getMutualFriends)
+            .reversed()
+            .thenComparingInt(Candidate::getUserId);
+
+    private final FriendRepository friendRepository;
+    private final int mergeThreshold;
+    private final int maxFanOut;
+    private final long timeBudgetNanos;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private int[] ownerIds = NO_IDS;
+    private int[] offsets = {0};
+    private int[] friendIds = NO_IDS;
+    private final Map<Integer, int[]> pendingRows = new HashMap<>();
+
+    public FriendGraph(
+            FriendRepository friendRepository,
+            MeterRegistry meterRegistry,
+            @Value("${filmorate.friends.graph.merge.threshold:1024}") int mergeThreshold,
+            @Value("${filmorate.friends.suggestions.max-fan-out:500}") int maxFanOut,
+            @Value("${filmorate.friends.suggestions.time-budget-ms:50}") long timeBudgetMillis
+    ) {
+        this.friendRepository = friendRepository;
+        this.mergeThreshold = mergeThreshold;
+        this.maxFanOut = maxFanOut;
+        this.timeBudgetNanos = TimeUnit.MILLISECONDS.toNanos(timeBudgetMillis);
+
+        Gauge.builder("filmorate.friends.graph.memory", this, FriendGraph::estimateMemoryBytes)
+                .description("Приблизительный объем памяти графа дружбы")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("filmorate.friends.graph.edges", this, FriendGraph::edgeCount)
+                .description("Количество связей дружбы в графе")
+                .register(meterRegistry);
+    }
+
+    // Связи приходят отсортированными по (user_id, friend_id), поэтому строки CSR заполняются за один проход
+    @PostConstruct
+    public void rebuild() {
+        IntList owners = new IntList();
+        IntList rowOffsets = new IntList();
+        IntList friends = new IntList();
+        rowOffsets.add(0);
+        friendRepository.forEachFriendship((userId, friendId) -> {
+            if (owners.size == 0 || owners.last() != userId) {
+                if (owners.size > 0) {
+                    rowOffsets.add(friends.size);
+                }
+                owners.add(userId);
+            }
+            friends.add(friendId);
+        });
+        if (owners.size > 0) {
+            rowOffsets.add(friends.size);
+        }
+
+        lock.writeLock().lock();
+        try {
+            ownerIds = owners.toArray();
+            offsets = rowOffsets.toArray();
+            friendIds = friends.toArray();
+            pendingRows.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Граф дружбы построен: связей={}, объем≈{} байт", edgeCount(), estimateMemoryBytes());
+    }
+
+    public void addFriend(int userId, int friendId) {
+        lock.writeLock().lock();
+        try {
+            int[] row = row(userId).toArray();
+            final int position = Arrays.binarySearch(row, friendId);
+            if (position >= 0) {
+                return;
+            }
+            final int insertAt = -position - 1;
+            int[] updated = new int[row.length + 1];
+            System.arraycopy(row, 0, updated, 0, insertAt);
+            updated[insertAt] = friendId;
+            System.arraycopy(row, insertAt, updated, insertAt + 1, row.length - insertAt);
+            putRow(userId, updated);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeFriend(int userId, int friendId) {
+        lock.writeLock().lock();
+        try {
+            Row row = row(userId);
+            if (row.contains(friendId)) {
+                putRow(userId, without(row.toArray(), friendId));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Дружба односторонняя и обратных строк нет, поэтому владельцев входящих связей удаленного
+    // пользователя передает вызывающий код, и переписываются только их строки
+    public void removeUser(int userId, Collection<Integer> followerIds) {
+        lock.writeLock().lock();
+        try {
+            for (int followerId : followerIds) {
+                Row row = row(followerId);
+                if (row.contains(userId)) {
+                    putRow(followerId, without(row.toArray(), userId));
+                }
+            }
+            putRow(userId, NO_IDS);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int[] findFriendIds(int userId) {
+        lock.readLock().lock();
+        try {
+            return row(userId).toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int[] findFriendIdsAfter(int userId, int afterId, int limit) {
+        lock.readLock().lock();
+        try {
+            Row row = row(userId);
+            int from = Arrays.binarySearch(row.ids, row.from, row.to, afterId);
+            from = from >= 0 ? from + 1 : -from - 1;
+            return Arrays.copyOfRange(row.ids, from, from + Math.min(limit, row.to - from));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int[] findCommonFriendIds(int userId, int otherId) {
+        lock.readLock().lock();
+        try {
+            Row row = row(userId);
+            Row otherRow = row(otherId);
+            int[] common = new int[Math.min(row.size(), otherRow.size())];
+            int count = 0;
+            for (int i = row.from, j = otherRow.from; i < row.to && j < otherRow.to; ) {
+                if (row.ids[i] < otherRow.ids[j]) {
+                    i++;
+                } else if (row.ids[i] > otherRow.ids[j]) {
+                    j++;
+                } else {
+                    common[count++] = row.ids[i];
+                    i++;
+                    j++;
+                }
+            }
+            return Arrays.copyOf(common, count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int countCommonFriends(int userId, int otherId) {
+        lock.readLock().lock();
+        try {
+            return intersectionSize(row(userId), row(otherId));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Обход в два шага: друзья пользователя, затем их друзья. С каждого шага берется не больше maxFanOut
+    // связей, а по исчерпании бюджета времени обход останавливается, и ранжируются уже найденные кандидаты.
+    // Такой результат помечается как неполный, зато время ответа не зависит от числа связей у пользователя
+    public Suggestions suggest(int userId, int limit) {
+        final long deadline = System.nanoTime() + timeBudgetNanos;
+        lock.readLock().lock();
+        try {
+            Row friends = row(userId);
+            boolean partial = friends.size() > maxFanOut;
+            IntCounter mutualFriends = new IntCounter();
+            final int friendsTo = friends.from + Math.min(friends.size(), maxFanOut);
+            for (int i = friends.from; i < friendsTo; i++) {
+                if (System.nanoTime() > deadline) {
+                    partial = true;
+                    break;
+                }
+                Row friendsOfFriend = row(friends.ids[i]);
+                partial |= friendsOfFriend.size() > maxFanOut;
+                final int candidatesTo = friendsOfFriend.from + Math.min(friendsOfFriend.size(), maxFanOut);
+                for (int j = friendsOfFriend.from; j < candidatesTo; j++) {
+                    final int candidateId = friendsOfFriend.ids[j];
+                    if (candidateId != userId && !friends.contains(candidateId)) {
+                        mutualFriends.increment(candidateId);
+                    }
+                }
+            }
+
+            PriorityQueue<Candidate> top = new PriorityQueue<>(BY_MUTUAL_DESC.reversed());
+            mutualFriends.forEach((candidateId, count) -> {
+                top.offer(new Candidate(candidateId, count));
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            });
+            List<Candidate> candidates = new ArrayList<>(top);
+            candidates.sort(BY_MUTUAL_DESC);
+            List<Integer> userIds = candidates.stream()
+                    .map(Candidate::getUserId)
+                    .collect(Collectors.toList());
+            if (partial) {
+                log.debug("Обход друзей пользователя id={} ограничен: кандидатов={}", userId, mutualFriends.size());
+            }
+            return new Suggestions(userIds, partial);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Scheduled(
+            initialDelayString = "${filmorate.friends.graph.merge.fixed-delay:60000}",
+            fixedDelayString = "${filmorate.friends.graph.merge.fixed-delay:60000}"
+    )
+    public void merge() {
+        lock.writeLock().lock();
+        try {
+            mergePendingRows();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public long edgeCount() {
+        lock.readLock().lock();
+        try {
+            long edges = friendIds.length;
+            for (Map.Entry<Integer, int[]> pending : pendingRows.entrySet()) {
+                final int index = Arrays.binarySearch(ownerIds, pending.getKey());
+                edges += pending.getValue().length - (index < 0 ? 0 : baseRow(index).size());
+            }
+            return edges;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long estimateMemoryBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = 4L * (ownerIds.length + offsets.length + friendIds.length);
+            for (int[] row : pendingRows.values()) {
+                bytes += 4L * row.length + 64;
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static int intersectionSize(Row row, Row otherRow) {
+        int count = 0;
+        for (int i = row.from, j = otherRow.from; i < row.to && j < otherRow.to; ) {
+            if (row.ids[i] < otherRow.ids[j]) {
+                i++;
+            } else if (row.ids[i] > otherRow.ids[j]) {
+                j++;
+            } else {
+                count++;
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    // Строка буфера, если пользователь менялся после слияния, иначе срез общего массива CSR без копирования
+    private Row row(int userId) {
+        int[] pending = pendingRows.get(userId);
+        if (pending != null) {
+            return new Row(pending, 0, pending.length);
+        }
+        final int index = Arrays.binarySearch(ownerIds, userId);
+        return index < 0 ? new Row(NO_IDS, 0, 0) : baseRow(index);
+    }
+
+    private Row baseRow(int index) {
+        return new Row(friendIds, offsets[index], offsets[index + 1]);
+    }
+
+    private void putRow(int userId, int[] row) {
+        pendingRows.put(userId, row);
+        if (pendingRows.size() >= mergeThreshold) {
+            mergePendingRows();
+        }
+    }
+
+    // Строки CSR и буфера сливаются по возрастанию id владельцев, пустые строки отбрасываются
+    private void mergePendingRows() {
+        if (pendingRows.isEmpty()) {
+            return;
+        }
+        int[] pendingOwnerIds = pendingRows.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+        IntList owners = new IntList();
+        IntList rowOffsets = new IntList();
+        IntList friends = new IntList();
+        rowOffsets.add(0);
+        int i = 0;
+        int j = 0;
+        while (i < ownerIds.length || j < pendingOwnerIds.length) {
+            final int ownerId;
+            if (j == pendingOwnerIds.length || i < ownerIds.length && ownerIds[i] < pendingOwnerIds[j]) {
+                ownerId = ownerIds[i];
+                friends.addAll(friendIds, offsets[i], offsets[i + 1]);
+                i++;
+            } else {
+                ownerId = pendingOwnerIds[j];
+                int[] row = pendingRows.get(ownerId);
+                friends.addAll(row, 0, row.length);
+                if (i < ownerIds.length && ownerIds[i] == ownerId) {
+                    i++;
+                }
+                j++;
+            }
+            if (friends.size > rowOffsets.last()) {
+                owners.add(ownerId);
+                rowOffsets.add(friends.size);
+            }
+        }
+        ownerIds = owners.toArray();
+        offsets = rowOffsets.toArray();
+        friendIds = friends.toArray();
+        pendingRows.clear();
+    }
+
+    private static int[] without(int[] row, int id) {
+        final int position = Arrays.binarySearch(row, id);
+        if (position < 0) {
+            return row;
+        }
+        int[] updated = new int[row.length - 1];
+        System.arraycopy(row, 0, updated, 0, position);
+        System.arraycopy(row, position + 1, updated, position, row.length - position - 1);
+        return updated;
+    }
+
+    @lombok.Value
+    public static class Suggestions {
+
+        List<Integer> userIds;
+        boolean partial;
+    }
+
+    @lombok.Value
+    private static class Candidate {
+
+        int userId;
+        int mutualFriends;
+    }
+
+    // Счетчик int -> int с открытой адресацией без упаковки ключей и значений; id пользователей
+    // положительны, поэтому 0 обозначает пустую ячейку
+    private static final class IntCounter {
+
+        private int[] keys = new int[64];
+        private int[] counts = new int[64];
+        private int size;
+
+        void increment(int key) {
+            int slot = slot(keys, key);
+            if (keys[slot] == 0) {
+                if (2 * (size + 1) > keys.length) {
+                    resize();
+                    slot = slot(keys, key);
+                }
+                keys[slot] = key;
+                size++;
+            }
+            counts[slot]++;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void forEach(IntBinaryConsumer consumer) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != 0) {
+                    consumer.accept(keys[i], counts[i]);
+                }
+            }
+        }
+
+        private void resize() {
+            int[] oldKeys = keys;
+            int[] oldCounts = counts;
+            keys = new int[oldKeys.length * 2];
+            counts = new int[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    final int slot = slot(keys, oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    counts[slot] = oldCounts[i];
+                }
+            }
+        }
+
+        private static int slot(int[] keys, int key) {
+            final int mask = keys.length - 1;
+            final int hash = key * 0x9E3779B9;
+            int slot = (hash ^ hash >>> 16) & mask;
+            while (keys[slot] != 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+
+    @FunctionalInterface
+    private interface IntBinaryConsumer {
+
+        void accept(int key, int value);
+    }
+
+    @lombok.Value
+    private static class Row {
+
+        int[] ids;
+        int from;
+        int to;
+
+        int size() {
+            return to - from;
+        }
+
+        boolean contains(int id) {
+            return Arrays.binarySearch(ids, from, to, id) >= 0;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOfRange(ids, from, to);
+        }
+    }
+
+    private static final class IntList {
+
+        private int[] values = new int[16];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void addAll(int[] source, int from, int to) {
+            final int count = to - from;
+            if (size + count > values.length) {
+                values = Arrays.copyOf(values, Math.max(values.length * 2, size + count));
+            }
+            System.arraycopy(source, from, values, size, count);
+            size += count;
+        }
+
+        int last() {
+            return values[size - 1];
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
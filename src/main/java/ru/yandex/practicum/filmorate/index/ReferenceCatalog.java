@@ -0,0 +1,91 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.RatingMPA;
+import ru.yandex.practicum.filmorate.repository.DirectorRepository;
+import ru.yandex.practicum.filmorate.repository.GenreRepository;
+import ru.yandex.practicum.filmorate.repository.RatingRepository;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Справочники жанров и рейтингов неизменны после data.sql, поэтому читаются один раз при старте,
+// а фильмы получают общие экземпляры по id вместо соединений с genre, rating_mpa и director
+@Slf4j
+@Component
+public class ReferenceCatalog {
+
+    private final GenreRepository genreRepository;
+    private final RatingRepository ratingRepository;
+    private final DirectorRepository directorRepository;
+
+    private volatile Map<Integer, Genre> genreById = Map.of();
+    private volatile Map<Integer, RatingMPA> ratingById = Map.of();
+    private final Map<Integer, Director> directorById = new ConcurrentHashMap<>();
+
+    public ReferenceCatalog(
+            GenreRepository genreRepository,
+            RatingRepository ratingRepository,
+            DirectorRepository directorRepository
+    ) {
+        this.genreRepository = genreRepository;
+        this.ratingRepository = ratingRepository;
+        this.directorRepository = directorRepository;
+    }
+
+    @PostConstruct
+    public void reload() {
+        Map<Integer, Genre> genres = new TreeMap<>();
+        genreRepository.findAll().forEach(genre -> genres.put(genre.getId(), genre));
+        Map<Integer, RatingMPA> ratings = new TreeMap<>();
+        ratingRepository.findAll().forEach(rating -> ratings.put(rating.getId(), rating));
+        genreById = genres;
+        ratingById = ratings;
+
+        directorById.clear();
+        directorRepository.findAll().forEach(this::putDirector);
+        log.info("Справочники загружены: жанров={}, рейтингов={}, режиссеров={}",
+                genres.size(), ratings.size(), directorById.size());
+    }
+
+    public Optional<Genre> findGenre(int id) {
+        return Optional.ofNullable(genreById.get(id));
+    }
+
+    public List<Genre> findGenres() {
+        return new ArrayList<>(genreById.values());
+    }
+
+    public Optional<RatingMPA> findRating(int id) {
+        return Optional.ofNullable(ratingById.get(id));
+    }
+
+    public List<RatingMPA> findRatings() {
+        return new ArrayList<>(ratingById.values());
+    }
+
+    public Optional<Director> findDirector(int id) {
+        Director director = directorById.get(id);
+        if (director != null) {
+            return Optional.of(director);
+        }
+        return directorRepository.findById(id).map(this::putDirector);
+    }
+
+    public Director putDirector(Director director) {
+        directorById.put(director.getId(), director);
+        return director;
+    }
+
+    public void removeDirector(int id) {
+        directorById.remove(id);
+    }
+}
@@ -1,17 +1,19 @@
 package ru.yandex.practicum.filmorate.model;
 
+import lombok.AllArgsConstructor;
 import lombok.Builder;
-import lombok.Data;
 import lombok.EqualsAndHashCode;
+import lombok.Value;
 
 import javax.validation.constraints.NotBlank;
 
-@Data
-@Builder
+@Value
+@Builder(toBuilder = true)
+@AllArgsConstructor
 public class Director {
 
-    private int id;
+    int id;
     @EqualsAndHashCode.Exclude
     @NotBlank(message = "Имя не должно быть пустым")
-    private String name;
+    String name;
 }
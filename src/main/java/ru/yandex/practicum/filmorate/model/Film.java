@@ -1,6 +1,6 @@
 package ru.yandex.practicum.filmorate.model;
 
-import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Builder;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -39,18 +39,9 @@ public class Film {
     @Positive(message = "Продолжительность фильма должна быть положительной")
     private int duration;
 
-    @JsonIgnore
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
     @EqualsAndHashCode.Exclude
-    private final Set<Integer> likedIds = new HashSet<>();
-
-    public void addLike(User user) {
-        final int userId = user.getId();
-        likedIds.add(userId);
-    }
-
-    public void addLike(int userId) {
-        likedIds.add(userId);
-    }
+    private int amountOfLikes;
 
     public void addGenre(Genre genre) {
         genres.add(genre);
@@ -60,12 +51,19 @@ public class Film {
         directors.add(director);
     }
 
-    public void removeLike(User user) {
-        final int userId = user.getId();
-        likedIds.remove(userId);
-    }
-
-    public int getAmountOfLikes() {
-        return likedIds.size();
+    // Кэш хранит общий экземпляр фильма, поэтому наружу отдается его копия
+    public Film copy() {
+        Film copy = Film.builder()
+                .id(id)
+                .mpa(mpa)
+                .name(name)
+                .description(description)
+                .releaseDate(releaseDate)
+                .duration(duration)
+                .amountOfLikes(amountOfLikes)
+                .build();
+        copy.genres.addAll(genres);
+        copy.directors.addAll(directors);
+        return copy;
     }
 }
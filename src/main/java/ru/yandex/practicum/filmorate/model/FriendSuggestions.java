@@ -0,0 +1,12 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+public class FriendSuggestions {
+
+    List<User> users;
+    boolean partial;
+}
@@ -0,0 +1,15 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class LikeOperationResult {
+
+    Integer filmId;
+    Integer userId;
+    EventOperation operation;
+    LikeOperationStatus status;
+    String message;
+}
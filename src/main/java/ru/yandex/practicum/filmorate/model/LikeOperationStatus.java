@@ -0,0 +1,10 @@
+package ru.yandex.practicum.filmorate.model;
+
+public enum LikeOperationStatus {
+    APPLIED,
+    UNCHANGED,
+    FILM_NOT_FOUND,
+    USER_NOT_FOUND,
+    INVALID,
+    NOT_APPLIED
+}
@@ -51,6 +51,19 @@ public class User {
         }
     }
 
+    // Кэш хранит общий экземпляр пользователя, поэтому наружу отдается его копия
+    public User copy() {
+        User copy = User.builder()
+                .id(id)
+                .email(email)
+                .login(login)
+                .name(name)
+                .birthday(birthday)
+                .build();
+        copy.friends.addAll(friends);
+        return copy;
+    }
+
     public int getAmountOfFriends() {
         return friends.size();
     }
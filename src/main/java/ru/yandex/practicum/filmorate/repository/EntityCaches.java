@@ -0,0 +1,32 @@
+package ru.yandex.practicum.filmorate.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+
+// Кэши сквозного чтения перед findById репозиториев фильмов и пользователей.
+// Одиночные записи сбрасываются аннотациями @CacheEvict на методах сервисов,
+// а пакетные изменения, затрагивающие сразу несколько записей, - через этот компонент
+@Component
+@RequiredArgsConstructor
+public class EntityCaches {
+
+    public static final String FILMS = "films";
+    public static final String USERS = "users";
+
+    private final CacheManager cacheManager;
+
+    public void evictFilms(Collection<Integer> filmIds) {
+        evict(FILMS, filmIds);
+    }
+
+    private void evict(String cacheName, Collection<Integer> ids) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            ids.forEach(cache::evict);
+        }
+    }
+}
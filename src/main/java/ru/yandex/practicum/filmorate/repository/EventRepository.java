@@ -9,9 +9,11 @@ import java.util.Optional;
 public interface EventRepository {
     Event save(Event event);
 
+    void saveAll(List<Event> events);
+
     Optional<Event> findById(int id);
 
-    List<Event> findByUserId(int id);
+    List<Event> findPageByUserId(int id, int beforeId, int limit);
 
     List<Event> findAll();
 
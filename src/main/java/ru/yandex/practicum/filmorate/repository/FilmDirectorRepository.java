@@ -8,6 +8,8 @@ public interface FilmDirectorRepository {
 
     void saveDirectors(Film film);
 
+    void syncDirectors(Film film);
+
     void loadDirectors(List<Film> films);
 
     void deleteDirectors(Film film);
@@ -9,6 +9,8 @@ public interface FilmGenreRepository {
 
     void saveGenres(Film film);
 
+    void syncGenres(Film film);
+
     void loadGenres(List<Film> films);
 
     List<Genre> findGenresByFilmId(int filmId);
@@ -2,8 +2,11 @@ package ru.yandex.practicum.filmorate.repository;
 
 import ru.yandex.practicum.filmorate.model.Film;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface FilmRepository {
 
@@ -13,33 +16,21 @@ public interface FilmRepository {
 
     List<Film> findAll();
 
-    default List<Film> foundCommonFilms(int userId, int friendId) {
-        return null;
-    }
+    List<Film> findPage(int afterId, int limit);
 
-    default List<Film> findTopFilmsByName(String searchQuery) {
-        throw new RuntimeException("Not Implemented");
-    }
+    List<Film> findByIds(List<Integer> ids);
 
-    default List<Film> findTopFilmsByDirector(String searchQuery) {
-        throw new RuntimeException("Not Implemented");
-    }
+    void exportFilms(Consumer<Film> consumer);
 
-    default List<Film> findTopFilmsByLikes(int count) {
-        throw new RuntimeException("Not Implemented");
-    }
+    Set<Integer> findExistingIds(Collection<Integer> ids);
 
-    default List<Film> findTopFilmsByLikesAndGenre(int genreId, int count) {
+    default List<Film> findFilmsOfDirectorByLikes(int directorId, int offset, int limit) {
         throw new RuntimeException("Not Implemented");
     }
 
-    default List<Film> findTopFilmsByLikesAndYear(int year, int count) {
+    default List<Film> findFilmsOfDirectorByYear(int directorId, int offset, int limit) {
         throw new RuntimeException("Not Implemented");
     }
 
-    default List<Film> findTopFilmsByLikesAndGenreAndYear(int genreId, int year, int count) {
-        throw new RuntimeException("Not Emplemented");
-    }
-
     void delete(Film film);
 }
@@ -3,18 +3,17 @@ package ru.yandex.practicum.filmorate.repository;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.List;
+import java.util.function.BiConsumer;
 
 public interface FriendRepository {
 
-    void saveFriends(User user);
+    boolean saveFriend(User user, User friend);
 
-    void loadFriends(List<User> users);
-
-    List<Integer> findFriendsByUserId(int userId);
+    void forEachFriendship(BiConsumer<Integer, Integer> consumer);
 
     void deleteFriend(User user, User friend);
 
     void deleteFriends(User user);
 
-    void deleteFriendFromUsers(User friend);
+    List<Integer> deleteFriendFromUsers(User friend);
 }
@@ -1,21 +1,36 @@
 package ru.yandex.practicum.filmorate.repository;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
 import ru.yandex.practicum.filmorate.model.User;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
 
 public interface LikeRepository {
 
-    void saveLikes(Film film);
+    boolean saveLike(Film film, User user);
 
-    void loadLikes(List<Film> films);
+    Map<Integer, Integer> saveLikes(List<LikeOperation> likes);
 
     List<Integer> findLikesByFilmId(int filmId);
 
-    void deleteLike(Film film, User user);
+    boolean deleteLike(Film film, User user);
 
-    void deleteLikes(User user);
+    List<Integer> deleteLikes(User user);
 
     void deleteLikes(Film film);
+
+    Map<Integer, Integer> deleteLikes(List<LikeOperation> likes);
+
+    Map<Integer, Set<Integer>> findLikedUserIds(Collection<Integer> filmIds, Collection<Integer> userIds);
+
+    void forEachLike(BiConsumer<Integer, Integer> consumer);
+
+    Map<Integer, Integer> findLikeCountDrifts();
+
+    void recountLikes(Collection<Integer> filmIds);
 }
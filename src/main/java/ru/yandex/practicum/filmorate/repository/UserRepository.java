@@ -2,8 +2,10 @@ package ru.yandex.practicum.filmorate.repository;
 
 import ru.yandex.practicum.filmorate.model.User;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 public interface UserRepository {
 
@@ -13,5 +15,11 @@ public interface UserRepository {
 
     List<User> findAll();
 
+    List<User> findPage(int afterId, int limit);
+
+    List<User> findByIds(Collection<Integer> ids);
+
+    Set<Integer> findExistingIds(Collection<Integer> ids);
+
     void delete(User user);
 }
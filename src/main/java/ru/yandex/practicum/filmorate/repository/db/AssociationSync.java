@@ -0,0 +1,47 @@
+package ru.yandex.practicum.filmorate.repository.db;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Приводит связи владельца в таблице вида (owner_id, target_id) к требуемому набору: сохраненные id
+// читаются одним запросом, лишние удаляются одним выражением, недостающие вставляются одним пакетом.
+// Неизменившиеся строки не трогаются, поэтому стоимость записи зависит от размера разницы, а не набора
+final class AssociationSync {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String selectSql;
+    private final String insertSql;
+    private final String deleteSql;
+
+    AssociationSync(JdbcTemplate jdbcTemplate, String table, String ownerColumn, String targetColumn) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.selectSql = "SELECT " + targetColumn + " FROM " + table + " WHERE " + ownerColumn + " = ?;";
+        this.insertSql = "INSERT INTO " + table + " (" + ownerColumn + ", " + targetColumn + ") VALUES (?, ?);";
+        this.deleteSql = "DELETE FROM " + table + " WHERE " + ownerColumn + " = ? AND " + targetColumn + " = ANY(?);";
+    }
+
+    void sync(int ownerId, Collection<Integer> targetIds) {
+        Set<Integer> storedIds = new HashSet<>(jdbcTemplate.queryForList(selectSql, Integer.class, ownerId));
+        Set<Integer> desiredIds = new HashSet<>(targetIds);
+
+        List<Integer> removedIds = storedIds.stream()
+                .filter(id -> !desiredIds.contains(id))
+                .collect(Collectors.toList());
+        if (!removedIds.isEmpty()) {
+            jdbcTemplate.update(deleteSql, ownerId, IdArray.of(removedIds));
+        }
+
+        List<Object[]> addedLinks = desiredIds.stream()
+                .filter(id -> !storedIds.contains(id))
+                .map(id -> new Object[]{ownerId, id})
+                .collect(Collectors.toList());
+        if (!addedLinks.isEmpty()) {
+            jdbcTemplate.batchUpdate(insertSql, addedLinks);
+        }
+    }
+}
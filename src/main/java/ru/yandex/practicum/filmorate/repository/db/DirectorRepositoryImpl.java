@@ -1,56 +1,51 @@
 package ru.yandex.practicum.filmorate.repository.db;
 
-import lombok.RequiredArgsConstructor;
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
-import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
 import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.exception.DirectorDoesNotExistException;
 import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.repository.DirectorRepository;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 
 @Repository
-@RequiredArgsConstructor
 public class DirectorRepositoryImpl implements DirectorRepository {
 
     private final JdbcTemplate jdbcTemplate;
+    private final KeyedInsert directorInsert;
+
+    public DirectorRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.directorInsert = new KeyedInsert(jdbcTemplate, "director", "id", "name");
+    }
 
     @Override
     public Director save(Director director) {
-        final int directorId = director.getId();
-        if (findById(directorId).isPresent()) {
+        if (director.getId() != 0) {
             return update(director);
         }
 
-        SimpleJdbcInsert insert = new SimpleJdbcInsert(jdbcTemplate)
-                .withSchemaName("public")
-                .withTableName("director")
-                .usingColumns("name")
-                .usingGeneratedKeyColumns("id");
-        insert.compile();
-
-        int id = (int) insert.executeAndReturnKey(Map.of(
-                "name", director.getName()
-        ));
-        director.setId(id);
+        int id = directorInsert.insert(director.getName());
 
-        return director;
+        return director.toBuilder().id(id).build();
     }
 
     private Director update(Director director) {
         final int directorId = director.getId();
         String sqlQuery = "UPDATE director SET name = ? WHERE id = ?;";
-        jdbcTemplate.update(
+        int updated = jdbcTemplate.update(
                 sqlQuery,
                 director.getName(),
                 directorId
         );
+        if (updated == 0) {
+            throw new DirectorDoesNotExistException("Попытка обновить несуществующего режиссера");
+        }
 
         return director;
     }
@@ -1,11 +1,10 @@
 package ru.yandex.practicum.filmorate.repository.db;
 
-import lombok.RequiredArgsConstructor;
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
-import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
 import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.exception.EventDoesNotExistException;
 import ru.yandex.practicum.filmorate.model.Event;
 import ru.yandex.practicum.filmorate.model.EventOperation;
 import ru.yandex.practicum.filmorate.model.EventType;
@@ -15,39 +14,57 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.Instant;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 @Repository
-@RequiredArgsConstructor
 public class EventRepositoryImpl implements EventRepository {
 
     private final JdbcTemplate jdbcTemplate;
+    private final KeyedInsert eventInsert;
+
+    public EventRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventInsert = new KeyedInsert(jdbcTemplate, "event", "event_id",
+                "timestamp", "user_id", "event_type", "operation", "entity_id");
+    }
 
     @Override
     public Event save(Event event) {
-        if (findById(event.getId()).isPresent()) {
+        if (event.getId() != 0) {
             return update(event);
         }
-        SimpleJdbcInsert insert = new SimpleJdbcInsert(jdbcTemplate)
-                .withSchemaName("public")
-                .withTableName("event")
-                .usingColumns("timestamp", "user_id", "event_type", "operation", "entity_id")
-                .usingGeneratedKeyColumns("event_id");
-        insert.compile();
-
-        int id = (int) insert.executeAndReturnKey(Map.of(
-                "timestamp", Instant.now().toEpochMilli(),
-                "user_id", event.getUserId(),
-                "event_type", event.getType(),
-                "operation", event.getOperation(),
-                "entity_id", event.getEntityId()
-        ));
+        int id = eventInsert.insert(
+                Instant.now().toEpochMilli(),
+                event.getUserId(),
+                event.getType().name(),
+                event.getOperation().name(),
+                event.getEntityId()
+        );
         event.setId(id);
 
         return event;
     }
 
+    @Override
+    public void saveAll(List<Event> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        String sqlQuery = "INSERT INTO event (timestamp, user_id, event_type, operation, entity_id) " +
+                "VALUES (?, ?, ?, ?, ?);";
+        List<Object[]> batchArgs = events.stream()
+                .map(event -> new Object[]{
+                        event.getTimestamp(),
+                        event.getUserId(),
+                        event.getType().name(),
+                        event.getOperation().name(),
+                        event.getEntityId()
+                })
+                .collect(Collectors.toList());
+        jdbcTemplate.batchUpdate(sqlQuery, batchArgs);
+    }
+
     @Override
     public Optional<Event> findById(int id) {
         String sqlQuery = "SELECT * FROM event WHERE event_id = ?";
@@ -68,14 +85,18 @@ public class EventRepositoryImpl implements EventRepository {
         return Optional.of(event);
     }
 
+    // События читаются от новых к старым по индексу (user_id, event_id), поэтому время запроса
+    // зависит от размера страницы, а не от размера всей ленты
     @Override
-    public List<Event> findByUserId(int id) {
-        String sqlQuery = "SELECT * FROM event WHERE user_id = ?";
+    public List<Event> findPageByUserId(int id, int beforeId, int limit) {
+        String sqlQuery = "SELECT * FROM event WHERE user_id = ? AND event_id < ? ORDER BY event_id DESC LIMIT ?;";
         EventMapper mapper = new EventMapper();
         List<Event> events = jdbcTemplate.query(
                 sqlQuery,
                 mapper,
-                id
+                id,
+                beforeId,
+                limit
         );
         return events;
     }
@@ -101,15 +122,18 @@ public class EventRepositoryImpl implements EventRepository {
     private Event update(Event event) {
         final int eventId = event.getId();
         String sqlQuery = "UPDATE event SET timestamp = ?,user_id = ?,event_type = ?,operation = ?, entity_id = ? WHERE event_id = ?";
-        jdbcTemplate.update(
+        int updated = jdbcTemplate.update(
                 sqlQuery,
                 event.getTimestamp(),
                 event.getUserId(),
-                event.getType(),
-                event.getOperation(),
+                event.getType().name(),
+                event.getOperation().name(),
                 event.getEntityId(),
                 eventId
         );
+        if (updated == 0) {
+            throw new EventDoesNotExistException("Попытка обновить несуществующее событие");
+        }
 
         return event;
     }
@@ -1,6 +1,5 @@
 package ru.yandex.practicum.filmorate.repository.db;
 
-import lombok.RequiredArgsConstructor;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.model.Director;
@@ -19,29 +18,37 @@ import static java.util.function.UnaryOperator.identity;
 import static java.util.stream.Collectors.toMap;
 
 @Repository
-@RequiredArgsConstructor
 public class FilmDirectorRepositoryImpl implements FilmDirectorRepository {
 
     private final JdbcTemplate jdbcTemplate;
+    private final AssociationSync directorSync;
+
+    public FilmDirectorRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.directorSync = new AssociationSync(jdbcTemplate, "film_director", "film_id", "director_id");
+    }
 
     @Override
     public void saveDirectors(Film film) {
         final int filmId = film.getId();
         List<Integer> directorIds = getDirectorIds(film.getDirectors());
-        for (int directorId : directorIds) {
-            saveDirector(filmId, directorId);
+        if (directorIds.isEmpty()) {
+            return;
         }
-    }
-
-    private void saveDirector(int filmId, int directorId) {
         String sqlQuery = "INSERT INTO film_director (film_id, director_id) VALUES (?, ?);";
-        jdbcTemplate.update(
+        jdbcTemplate.batchUpdate(
                 sqlQuery,
-                filmId,
-                directorId
+                directorIds.stream()
+                        .map(directorId -> new Object[]{filmId, directorId})
+                        .collect(Collectors.toList())
         );
     }
 
+    @Override
+    public void syncDirectors(Film film) {
+        directorSync.sync(film.getId(), getDirectorIds(film.getDirectors()));
+    }
+
     private List<Integer> getDirectorIds(Set<Director> directors) {
         if (directors == null || directors.isEmpty()) {
             return Collections.emptyList();
@@ -53,9 +60,8 @@ public class FilmDirectorRepositoryImpl implements FilmDirectorRepository {
 
     @Override
     public void loadDirectors(List<Film> films) {
-        String inSql = String.join(", ", Collections.nCopies(films.size(), "?"));
-        String sqlQuery = String.format("SELECT * FROM film_director AS fd " +
-                "JOIN director AS d ON fd.director_id = d.id WHERE fd.film_id IN (%s)", inSql);
+        String sqlQuery = "SELECT * FROM film_director AS fd " +
+                "JOIN director AS d ON fd.director_id = d.id WHERE fd.film_id = ANY(?);";
         Map<Integer, Film> filmById = films.stream().collect(toMap(Film::getId, identity()));
         jdbcTemplate.query(
                 sqlQuery,
@@ -66,7 +72,7 @@ public class FilmDirectorRepositoryImpl implements FilmDirectorRepository {
                         film.addDirector(makeDirector(rs, 0));
                     }
                 },
-                filmById.keySet().toArray()
+                IdArray.of(filmById.keySet())
         );
     }
 
@@ -1,6 +1,5 @@
 package ru.yandex.practicum.filmorate.repository.db;
 
-import lombok.RequiredArgsConstructor;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.model.Film;
@@ -19,29 +18,37 @@ import static java.util.function.UnaryOperator.identity;
 import static java.util.stream.Collectors.toMap;
 
 @Repository
-@RequiredArgsConstructor
 public class FilmGenreRepositoryImpl implements FilmGenreRepository {
 
     private final JdbcTemplate jdbcTemplate;
+    private final AssociationSync genreSync;
+
+    public FilmGenreRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.genreSync = new AssociationSync(jdbcTemplate, "film_genre", "film_id", "genre_id");
+    }
 
     @Override
     public void saveGenres(Film film) {
         final int filmId = film.getId();
         List<Integer> genreIds = getGenreIds(film.getGenres());
-        for (int genreId : genreIds) {
-            saveGenreOfFilm(filmId, genreId);
+        if (genreIds.isEmpty()) {
+            return;
         }
-    }
-
-    private void saveGenreOfFilm(int filmId, int genreId) {
         String sqlQuery = "INSERT INTO film_genre (film_id, genre_id) VALUES (?, ?);";
-        jdbcTemplate.update(
+        jdbcTemplate.batchUpdate(
                 sqlQuery,
-                filmId,
-                genreId
+                genreIds.stream()
+                        .map(genreId -> new Object[]{filmId, genreId})
+                        .collect(Collectors.toList())
         );
     }
 
+    @Override
+    public void syncGenres(Film film) {
+        genreSync.sync(film.getId(), getGenreIds(film.getGenres()));
+    }
+
     private List<Integer> getGenreIds(Set<Genre> genres) {
         if (genres == null || genres.isEmpty()) {
             return Collections.emptyList();
@@ -53,9 +60,8 @@ public class FilmGenreRepositoryImpl implements FilmGenreRepository {
 
     @Override
     public void loadGenres(List<Film> films) {
-        String inSql = String.join(", ", Collections.nCopies(films.size(), "?"));
-        String sqlQuery = String.format("SELECT * FROM film_genre AS fg " +
-                "JOIN genre AS g ON fg.genre_id = g.id WHERE fg.film_id IN (%s);", inSql);
+        String sqlQuery = "SELECT * FROM film_genre AS fg " +
+                "JOIN genre AS g ON fg.genre_id = g.id WHERE fg.film_id = ANY(?);";
         Map<Integer, Film> filmById = films.stream().collect(toMap(Film::getId, identity()));
         jdbcTemplate.query(
                 sqlQuery,
@@ -66,7 +72,7 @@ public class FilmGenreRepositoryImpl implements FilmGenreRepository {
                         film.addGenre(makeGenre(rs, 0));
                     }
                 },
-                filmById.keySet().toArray()
+                IdArray.of(filmById.keySet())
         );
     }
 
@@ -1,67 +1,105 @@
 package ru.yandex.practicum.filmorate.repository.db;
 
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
-import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
 import org.springframework.stereotype.Repository;
-import ru.yandex.practicum.filmorate.exception.FilmSaveException;
+import ru.yandex.practicum.filmorate.exception.FilmDoesNotExistException;
+import ru.yandex.practicum.filmorate.exception.GenreDoesNotExistException;
+import ru.yandex.practicum.filmorate.exception.RatingDoesNotExistException;
+import ru.yandex.practicum.filmorate.index.ReferenceCatalog;
 import ru.yandex.practicum.filmorate.model.Film;
-import ru.yandex.practicum.filmorate.model.RatingMPA;
+import ru.yandex.practicum.filmorate.repository.EntityCaches;
 import ru.yandex.practicum.filmorate.repository.FilmRepository;
 
+import java.sql.Array;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Repository
-@RequiredArgsConstructor
 public class FilmRepositoryImpl implements FilmRepository {
 
+    // Жанры и режиссеры собираются в массивы id коррелированными подзапросами, а рейтинг, жанры
+    // и режиссеры подставляются из справочника, поэтому фильм читается за один проход без соединений
+    private static final String FILM_SELECT = "SELECT f.id, f.name, f.description, f.rating_mpa_id, " +
+        "f.duration, f.release_date, f.like_count, " +
+        "(SELECT ARRAY_AGG(fg.genre_id ORDER BY fg.genre_id) FROM film_genre AS fg " +
+        "WHERE fg.film_id = f.id) AS genre_ids, " +
+        "(SELECT ARRAY_AGG(fd.director_id ORDER BY fd.director_id) FROM film_director AS fd " +
+        "WHERE fd.film_id = f.id) AS director_ids " +
+        "FROM film AS f ";
+
     private final JdbcTemplate jdbcTemplate;
+    private final ReferenceCatalog referenceCatalog;
+    private final KeyedInsert filmInsert;
+    private final int exportChunkSize;
+
+    public FilmRepositoryImpl(
+            JdbcTemplate jdbcTemplate,
+            ReferenceCatalog referenceCatalog,
+            @Value("${filmorate.films.export.chunk-size:500}") int exportChunkSize
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.referenceCatalog = referenceCatalog;
+        this.exportChunkSize = exportChunkSize;
+        this.filmInsert = new KeyedInsert(jdbcTemplate, "film", "id",
+            "rating_mpa_id", "name", "description", "release_date", "duration");
+    }
 
     @Override
     public Film save(Film film) {
-        if (findById(film.getId()).isPresent()) {
+        if (film.getId() != 0) {
             return update(film);
         }
-        SimpleJdbcInsert insert = new SimpleJdbcInsert(jdbcTemplate).withSchemaName("public")
-            .withTableName("film")
-            .usingColumns("rating_mpa_id", "name", "description", "release_date", "duration")
-            .usingGeneratedKeyColumns("id");
-        insert.compile();
-
-        int id = (int) insert.executeAndReturnKey(Map.of("rating_mpa_id", film.getMpa()
-                .getId(), "name", film.getName(), "description", film.getDescription(),
-            "release_date",
-            film.getReleaseDate(), "duration", film.getDuration()));
+        int id = filmInsert.insert(film.getMpa().getId(), film.getName(), film.getDescription(),
+            film.getReleaseDate(), film.getDuration());
         film.setId(id);
+        film.setAmountOfLikes(0);
 
-        Film savedFilm = findById(id).orElseThrow(
-            () -> new FilmSaveException("Произошла ошибка при сохранении фильма"));
-        return savedFilm;
+        return film;
     }
 
+    // Обновление и чтение счетчика лайков выполняются одним выражением: FINAL TABLE возвращает
+    // измененную строку. Условие IS DISTINCT FROM не дает перезаписать строку без изменений,
+    // и только в этом случае счетчик лайков и существование фильма проверяются отдельным запросом
     private Film update(Film film) {
         final int filmId = film.getId();
-        String sqlQuery = "UPDATE film SET rating_mpa_id = ?, name = ?, description = ?, " +
-            "release_date = ?, duration = ? WHERE id = ?;";
-        jdbcTemplate.update(sqlQuery, film.getMpa()
-                .getId(), film.getName(), film.getDescription(), film.getReleaseDate(),
-            film.getDuration(), filmId);
-        Film updatedFilm = findById(filmId).orElseThrow(
-            () -> new FilmSaveException("Произошла ошибка при обновлении фильма"));
-        return updatedFilm;
+        final Object[] values = {film.getMpa().getId(), film.getName(), film.getDescription(),
+            film.getReleaseDate(), film.getDuration()};
+        String sqlQuery = "SELECT like_count FROM FINAL TABLE (UPDATE film SET rating_mpa_id = ?, name = ?, " +
+            "description = ?, release_date = ?, duration = ? WHERE id = ? AND " +
+            "(rating_mpa_id, name, description, release_date, duration) IS DISTINCT FROM (?, ?, ?, ?, ?));";
+        List<Integer> likeCounts = jdbcTemplate.queryForList(sqlQuery, Integer.class,
+            values[0], values[1], values[2], values[3], values[4], filmId,
+            values[0], values[1], values[2], values[3], values[4]);
+        if (likeCounts.isEmpty()) {
+            likeCounts = jdbcTemplate.queryForList("SELECT like_count FROM film WHERE id = ?;", Integer.class, filmId);
+        }
+        if (likeCounts.isEmpty()) {
+            throw new FilmDoesNotExistException("Попытка обновить несуществующий фильм");
+        }
+        film.setAmountOfLikes(likeCounts.get(0));
+        return film;
     }
 
     @Override
+    @Cacheable(cacheNames = EntityCaches.FILMS, key = "#id", unless = "#result == null")
     public Optional<Film> findById(int id) {
-        String sqlQuery = "SELECT f.id, f.name, f.description, f.rating_mpa_id, " +
-            "f.duration, f.release_date, r.name AS rating_name FROM film AS f " +
-            "JOIN rating_mpa AS r ON f.rating_mpa_id = r.id WHERE f.id = ?;";
+        String sqlQuery = FILM_SELECT + "WHERE f.id = ?;";
 
         FilmMapper mapper = new FilmMapper();
         Film film;
@@ -79,9 +117,7 @@ public class FilmRepositoryImpl implements FilmRepository {
 
     @Override
     public List<Film> findAll() {
-        String sqlQuery = "SELECT f.id, f.name, f.description, f.rating_mpa_id, " +
-            "f.duration, f.release_date, r.name AS rating_name FROM film AS f " +
-            "JOIN rating_mpa AS r ON f.rating_mpa_id = r.id;";
+        String sqlQuery = FILM_SELECT + ";";
 
         FilmMapper mapper = new FilmMapper();
         List<Film> films = jdbcTemplate.query(sqlQuery, mapper);
@@ -89,115 +125,88 @@ public class FilmRepositoryImpl implements FilmRepository {
     }
 
     @Override
-    public List<Film> foundCommonFilms(int userId, int friendId) {
-        String sqlQuery = "SELECT fl.film_id AS id, f.rating_mpa_id, r.name AS rating_name,\n" +
-            " f.name, f.description, f.duration, f.release_date\n" +
-            "              FROM film_like AS fl\n" +
-            "              LEFT JOIN film AS f ON f.id = fl.film_id\n" +
-            "              LEFT JOIN film_like AS f_l ON f_l.film_id = f.id\n" +
-            "              LEFT JOIN rating_mpa AS r ON f.rating_mpa_id = r.id\n" +
-            "              WHERE fl.user_id = ? AND f_l.user_id = ?";
+    public List<Film> findPage(int afterId, int limit) {
+        String sqlQuery = FILM_SELECT + "WHERE f.id > ? ORDER BY f.id LIMIT ?;";
+
         FilmMapper mapper = new FilmMapper();
-        List<Film> films = jdbcTemplate.query(sqlQuery, mapper, userId, friendId);
+        List<Film> films = jdbcTemplate.query(sqlQuery, mapper, afterId, limit);
         return films;
     }
 
     @Override
-    public List<Film> findTopFilmsByLikes(int count) {
-        String sqlQuery =
-            "SELECT f.id, f.name, f.description, f.rating_mpa_id, f.duration, f.release_date, " +
-                "r.name AS rating_name, COUNT(fl.user_id) " + "FROM film AS f " +
-                "JOIN rating_mpa AS r ON f.rating_mpa_id = r.id " +
-                "LEFT JOIN film_like AS fl ON f.id = fl.film_id " + "GROUP BY f.id " +
-                "ORDER BY COUNT(fl.user_id) DESC " + "LIMIT ?;";
-
-        FilmRepositoryImpl.FilmMapper mapper = new FilmRepositoryImpl.FilmMapper();
-        List<Film> films = jdbcTemplate.query(sqlQuery, mapper, count);
+    public List<Film> findByIds(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String sqlQuery = FILM_SELECT + "WHERE f.id = ANY(?);";
 
-        return films;
+        FilmMapper mapper = new FilmMapper();
+        Map<Integer, Film> filmById = jdbcTemplate.query(sqlQuery, mapper, IdArray.of(ids)).stream()
+            .collect(Collectors.toMap(Film::getId, Function.identity()));
+        return ids.stream()
+            .map(filmById::get)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toList());
     }
 
     @Override
-    public List<Film> findTopFilmsByLikesAndGenre(int genreId, int count) {
-        String sqlQuery =
-            "SELECT f.id, f.name, f.description, f.rating_mpa_id, f.duration, f.release_date, " +
-                "r.name AS rating_name, fg.genre_id, COUNT(fl.user_id) " + "FROM film AS f " +
-                "JOIN rating_mpa AS r ON f.rating_mpa_id = r.id " +
-                "JOIN film_genre AS fg ON f.id = fg.film_id " +
-                "LEFT JOIN film_like AS fl ON f.id = fl.film_id " + "WHERE fg.genre_id = ? " +
-                "GROUP BY f.id " + "ORDER BY COUNT(fl.user_id) DESC " + "LIMIT ?;";
-
-        FilmRepositoryImpl.FilmMapper mapper = new FilmRepositoryImpl.FilmMapper();
-        List<Film> films = jdbcTemplate.query(sqlQuery, mapper, genreId, count);
-
-        return films;
+    public Set<Integer> findExistingIds(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return new HashSet<>();
+        }
+        String sqlQuery = "SELECT id FROM film WHERE id = ANY(?);";
+        return new HashSet<>(jdbcTemplate.queryForList(sqlQuery, Integer.class, IdArray.of(ids)));
     }
 
     @Override
-    public List<Film> findTopFilmsByLikesAndYear(int year, int count) {
-        String sqlQuery =
-            "SELECT f.id, f.name, f.description, f.rating_mpa_id, f.duration, f.release_date, " +
-                "r.name AS rating_name, COUNT(fl.user_id) " + "FROM film AS f " +
-                "JOIN rating_mpa AS r ON f.rating_mpa_id = r.id " +
-                "LEFT JOIN film_like AS fl ON f.id = fl.film_id " +
-                "WHERE EXTRACT(YEAR FROM CAST(f.release_date AS date)) = ? " + "GROUP BY f.id " +
-                "ORDER BY COUNT(fl.user_id) DESC " + "LIMIT ?;";
-
-        FilmRepositoryImpl.FilmMapper mapper = new FilmRepositoryImpl.FilmMapper();
-        List<Film> films = jdbcTemplate.query(sqlQuery, mapper, year, count);
+    public List<Film> findFilmsOfDirectorByLikes(int directorId, int offset, int limit) {
+        String sqlQuery = FILM_SELECT +
+            "JOIN film_director AS fdl ON fdl.film_id = f.id " +
+            "WHERE fdl.director_id = ? " +
+            "ORDER BY f.like_count DESC, f.id " + "LIMIT ? OFFSET ?;";
 
-        return films;
-    }
-
-    @Override
-    public List<Film> findTopFilmsByLikesAndGenreAndYear(int genreId, int year, int count) {
-        String sqlQuery =
-            "SELECT f.id, f.name, f.description, f.rating_mpa_id, f.duration, f.release_date, " +
-                "r.name AS rating_name, fg.genre_id, COUNT(fl.user_id) " + "FROM film AS f " +
-                "JOIN rating_mpa AS r ON f.rating_mpa_id = r.id " +
-                "JOIN film_genre AS fg ON f.id = fg.film_id " +
-                "LEFT JOIN film_like AS fl ON f.id = fl.film_id " +
-                "WHERE fg.genre_id = ? AND EXTRACT(YEAR FROM CAST(f.release_date AS date)) = ? " +
-                "GROUP BY f.id " + "ORDER BY COUNT(fl.user_id) DESC " + "LIMIT ?;";
-
-        FilmRepositoryImpl.FilmMapper mapper = new FilmRepositoryImpl.FilmMapper();
-        List<Film> films = jdbcTemplate.query(sqlQuery, mapper, genreId, year, count);
+        FilmMapper mapper = new FilmMapper();
+        List<Film> films = jdbcTemplate.query(sqlQuery, mapper, directorId, limit, offset);
 
         return films;
     }
 
     @Override
-    public List<Film> findTopFilmsByName(String searchQuery) {
-        String sqlQuery =
-            "SELECT f.id, f.name, f.description, f.rating_mpa_id, f.duration, f.release_date, " +
-                "r.name AS rating_name, COUNT(fl.user_id) " + "FROM film AS f " +
-                "JOIN rating_mpa AS r ON f.rating_mpa_id = r.id " +
-                "LEFT JOIN film_like AS fl ON f.id = fl.film_id " +
-                "WHERE LOWER(f.name) LIKE LOWER(?) " + "GROUP BY f.id " +
-                "ORDER BY COUNT(fl.user_id) DESC;";
-
-        FilmMapper mapper = new FilmRepositoryImpl.FilmMapper();
-        List<Film> films = jdbcTemplate.query(sqlQuery, mapper, "%" + searchQuery + "%");
+    public List<Film> findFilmsOfDirectorByYear(int directorId, int offset, int limit) {
+        String sqlQuery = FILM_SELECT +
+            "JOIN film_director AS fdl ON fdl.film_id = f.id " +
+            "WHERE fdl.director_id = ? " +
+            "ORDER BY f.release_date, f.id " + "LIMIT ? OFFSET ?;";
+
+        FilmMapper mapper = new FilmMapper();
+        List<Film> films = jdbcTemplate.query(sqlQuery, mapper, directorId, limit, offset);
 
         return films;
     }
 
+    // Каталог читается страницами по id, каждая на своем коротком соединении. Соединение возвращается
+    // в пул до передачи фильмов потребителю, поэтому медленный клиент выгрузки не удерживает его
     @Override
-    public List<Film> findTopFilmsByDirector(String searchQuery) {
-        String sqlQuery =
-            "SELECT f.id, f.name, f.description, f.rating_mpa_id, f.duration, f.release_date, " +
-                "r.name AS rating_name, COUNT(fl.user_id) " + "FROM film AS f " +
-                "JOIN rating_mpa AS r ON f.rating_mpa_id = r.id " +
-                "JOIN film_director AS fd ON f.ID = fd.film_id " +
-                "JOIN director AS d ON fd.director_id = d.id " +
-                "LEFT JOIN film_like AS fl ON f.id = fl.film_id " +
-                "WHERE LOWER(d.name) LIKE LOWER(?) " + "GROUP BY f.id " +
-                "ORDER BY COUNT(fl.user_id) DESC;";
-
-        FilmMapper mapper = new FilmRepositoryImpl.FilmMapper();
-        List<Film> films = jdbcTemplate.query(sqlQuery, mapper, "%" + searchQuery + "%");
+    public void exportFilms(Consumer<Film> consumer) {
+        String sqlQuery = FILM_SELECT + "WHERE f.id > ? ORDER BY f.id LIMIT ?;";
 
-        return films;
+        FilmMapper mapper = new FilmMapper();
+        int afterId = 0;
+        List<Film> films;
+        do {
+            final int chunkAfterId = afterId;
+            films = jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(sqlQuery);
+                statement.setFetchSize(exportChunkSize);
+                statement.setInt(1, chunkAfterId);
+                statement.setInt(2, exportChunkSize);
+                return statement;
+            }, mapper);
+            films.forEach(consumer);
+            if (!films.isEmpty()) {
+                afterId = films.get(films.size() - 1).getId();
+            }
+        } while (films.size() == exportChunkSize);
     }
 
     @Override
@@ -207,23 +216,46 @@ public class FilmRepositoryImpl implements FilmRepository {
         jdbcTemplate.update(sqlQuery, filmId);
     }
 
-    private static class FilmMapper implements RowMapper<Film> {
+    private class FilmMapper implements RowMapper<Film> {
 
         @Override
+        // Рейтинг и жанры фильма ссылаются на справочники по внешним ключам, поэтому отсутствие id
+        // в каталоге означает его рассогласование с базой, а не допустимое состояние фильма
         public Film mapRow(ResultSet rs, int rowNum) throws SQLException {
-            return Film.builder()
+            final int ratingId = rs.getInt("rating_mpa_id");
+            Film film = Film.builder()
                 .id(rs.getInt("id"))
-                .mpa(makeRating(rs, 0))
+                .mpa(referenceCatalog.findRating(ratingId)
+                    .orElseThrow(() -> new RatingDoesNotExistException(
+                        "Рейтинг id=" + ratingId + " отсутствует в справочнике")))
                 .name(rs.getString("name"))
                 .description(rs.getString("description"))
                 .duration(rs.getInt("duration"))
                 .releaseDate(rs.getDate("release_date")
                     .toLocalDate())
+                .amountOfLikes(rs.getInt("like_count"))
                 .build();
+            for (Object genreId : getArray(rs, "genre_ids")) {
+                film.addGenre(referenceCatalog.findGenre((Integer) genreId)
+                    .orElseThrow(() -> new GenreDoesNotExistException(
+                        "Жанр id=" + genreId + " отсутствует в справочнике")));
+            }
+            for (Object directorId : getArray(rs, "director_ids")) {
+                referenceCatalog.findDirector((Integer) directorId).ifPresent(film::addDirector);
+            }
+            return film;
         }
 
-        private RatingMPA makeRating(ResultSet rs, int rowNum) throws SQLException {
-            return new RatingMPA(rs.getInt("rating_mpa_id"), rs.getString("rating_name"));
+        private Object[] getArray(ResultSet rs, String columnLabel) throws SQLException {
+            Array array = rs.getArray(columnLabel);
+            if (array == null) {
+                return new Object[0];
+            }
+            try {
+                return (Object[]) array.getArray();
+            } finally {
+                array.free();
+            }
         }
     }
 }
@@ -1,73 +1,54 @@
 package ru.yandex.practicum.filmorate.repository.db;
 
-import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.repository.FriendRepository;
 
-import java.util.Collections;
 import java.util.List;
-import java.util.Map;
-
-import static java.util.function.UnaryOperator.identity;
-import static java.util.stream.Collectors.toMap;
+import java.util.function.BiConsumer;
 
 @Repository
-@RequiredArgsConstructor
 public class FriendRepositoryImpl implements FriendRepository {
 
     private final JdbcTemplate jdbcTemplate;
 
+    public FriendRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Вставляется одна строка, если ее еще нет, без чтения и сравнения всего списка друзей
     @Override
-    public void saveFriends(User user) {
+    public boolean saveFriend(User user, User friend) {
         final int userId = user.getId();
-        for (int friendId : user.getFriends()) {
-            saveFriend(userId, friendId);
+        final int friendId = friend.getId();
+        String sqlQuery = "MERGE INTO friendship AS fs USING (VALUES (?, ?)) AS v (user_id, friend_id) " +
+                "ON fs.user_id = v.user_id AND fs.friend_id = v.friend_id " +
+                "WHEN NOT MATCHED THEN INSERT (user_id, friend_id) VALUES (v.user_id, v.friend_id);";
+        try {
+            return jdbcTemplate.update(
+                    sqlQuery,
+                    userId,
+                    friendId
+            ) > 0;
+        } catch (DuplicateKeyException e) {
+            return false;
         }
     }
 
-    private void saveFriend(int userId, int friendId) {
-        String sqlQuery = "INSERT INTO friendship (user_id, friend_id) VALUES (?, ?);";
-        jdbcTemplate.update(
-                sqlQuery,
-                userId,
-                friendId
-        );
-    }
-
+    // Порядок (user_id, friend_id) совпадает с уникальным индексом и нужен графу дружбы для построения строк
     @Override
-    public void loadFriends(List<User> users) {
-        String inSql = String.join(", ", Collections.nCopies(users.size(), "?"));
-        String sqlQuery = String.format("SELECT f.user_id, f.friend_id FROM friendship as f " +
-                "LEFT JOIN \"user\" AS u ON f.friend_id = u.id " +
-                "WHERE u.login IS NOT NULL AND f.user_id IN (%s);", inSql);
-        Map<Integer, User> userById = users.stream().collect(toMap(User::getId, identity()));
+    public void forEachFriendship(BiConsumer<Integer, Integer> consumer) {
+        String sqlQuery = "SELECT user_id, friend_id FROM friendship ORDER BY user_id, friend_id;";
         jdbcTemplate.query(
                 sqlQuery,
                 (rs) -> {
-                    final int userId = rs.getInt("user_id");
-                    final int friendId = rs.getInt("friend_id");
-                    User user = userById.get(userId);
-                    if (user != null) {
-                        user.addFriend(friendId);
-                    }
-                },
-                userById.keySet().toArray()
+                    consumer.accept(rs.getInt("user_id"), rs.getInt("friend_id"));
+                }
         );
     }
 
-    @Override
-    public List<Integer> findFriendsByUserId(int userId) {
-        String sqlQuery = "SELECT friend_id FROM friendship WHERE user_id = ?;";
-        List<Integer> friends = jdbcTemplate.query(
-                sqlQuery,
-                (rs, rowNum) -> rs.getInt("friend_id"),
-                userId
-        );
-        return friends;
-    }
-
     @Override
     public void deleteFriend(User user, User friend) {
         final int userId = user.getId();
@@ -88,9 +69,16 @@ public class FriendRepositoryImpl implements FriendRepository {
     }
 
     @Override
-    public void deleteFriendFromUsers(User friend) {
+    public List<Integer> deleteFriendFromUsers(User friend) {
         final int friendId = friend.getId();
+        String usersQuery = "SELECT user_id FROM friendship WHERE friend_id = ?;";
+        List<Integer> userIds = jdbcTemplate.query(
+                usersQuery,
+                (rs, rowNum) -> rs.getInt("user_id"),
+                friendId
+        );
         String sqlQuery = "DELETE FROM friendship WHERE friend_id = ?;";
         jdbcTemplate.update(sqlQuery, friendId);
+        return userIds;
     }
 }
\ No newline at end of file
@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.repository.db;
+
+import org.springframework.jdbc.core.SqlParameterValue;
+
+import java.sql.Types;
+import java.util.Collection;
+
+// Набор id передается одним параметром-массивом для условия "= ANY(?)", поэтому текст запроса
+// не зависит от размера набора и переиспользуется из кэша подготовленных выражений H2.
+// Пустой набор дает пустой массив и пустую выборку вместо некорректного "IN ()"
+final class IdArray {
+
+    private IdArray() {
+    }
+
+    static SqlParameterValue of(Collection<Integer> ids) {
+        return new SqlParameterValue(Types.ARRAY, ids.toArray(new Integer[0]));
+    }
+}
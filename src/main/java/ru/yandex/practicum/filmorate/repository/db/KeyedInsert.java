@@ -0,0 +1,43 @@
+package ru.yandex.practicum.filmorate.repository.db;
+
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+
+import java.sql.PreparedStatement;
+import java.util.Collections;
+import java.util.Objects;
+
+// Вставка строки с генерируемым ключом. Текст запроса собирается один раз при создании репозитория,
+// поэтому, в отличие от SimpleJdbcInsert, на каждой вставке не читаются метаданные таблицы
+// из INFORMATION_SCHEMA, а неизменный текст переиспользуется из кэша подготовленных выражений H2.
+// Значения передаются в порядке столбцов, указанных при создании
+final class KeyedInsert {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String sql;
+    private final String[] keyColumns;
+    private final int columnCount;
+
+    KeyedInsert(JdbcTemplate jdbcTemplate, String table, String keyColumn, String... columns) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.sql = "INSERT INTO " + table + " (" + String.join(", ", columns) + ") " +
+                "VALUES (" + String.join(", ", Collections.nCopies(columns.length, "?")) + ");";
+        this.keyColumns = new String[]{keyColumn};
+        this.columnCount = columns.length;
+    }
+
+    int insert(Object... values) {
+        if (values.length != columnCount) {
+            throw new IllegalArgumentException("Ожидалось значений: " + columnCount + ", получено: " + values.length);
+        }
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql, keyColumns);
+            new ArgumentPreparedStatementSetter(values).setValues(statement);
+            return statement;
+        }, keyHolder);
+        return Objects.requireNonNull(keyHolder.getKey()).intValue();
+    }
+}
@@ -1,18 +1,24 @@
 package ru.yandex.practicum.filmorate.repository.db;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.repository.LikeRepository;
 
-import java.util.Collections;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
 
-import static java.util.function.UnaryOperator.identity;
-import static java.util.stream.Collectors.toMap;
 
 @Repository
 @RequiredArgsConstructor
@@ -21,40 +27,73 @@ public class LikeRepositoryImpl implements LikeRepository {
     private final JdbcTemplate jdbcTemplate;
 
     @Override
-    public void saveLikes(Film film) {
+    @Transactional
+    public boolean saveLike(Film film, User user) {
         final int filmId = film.getId();
-        for (int likedUserId : film.getLikedIds()) {
-            saveLike(filmId, likedUserId);
+        final int userId = user.getId();
+        String sqlQuery = "MERGE INTO film_like AS fl USING (VALUES (?, ?)) AS v (film_id, user_id) " +
+                "ON fl.film_id = v.film_id AND fl.user_id = v.user_id " +
+                "WHEN NOT MATCHED THEN INSERT (film_id, user_id) VALUES (v.film_id, v.user_id);";
+        int inserted;
+        try {
+            inserted = jdbcTemplate.update(
+                    sqlQuery,
+                    filmId,
+                    userId
+            );
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+        if (inserted > 0) {
+            changeLikeCount(filmId, inserted);
         }
+        return inserted > 0;
     }
 
-    private void saveLike(int filmId, int likedUserId) {
-        String sqlQuery = "INSERT INTO film_like (film_id, user_id) VALUES (?, ?);";
-        jdbcTemplate.update(
-                sqlQuery,
-                filmId,
-                likedUserId
-        );
+    @Override
+    @Transactional
+    public Map<Integer, Integer> saveLikes(List<LikeOperation> likes) {
+        String sqlQuery = "MERGE INTO film_like AS fl USING (VALUES (?, ?)) AS v (film_id, user_id) " +
+                "ON fl.film_id = v.film_id AND fl.user_id = v.user_id " +
+                "WHEN NOT MATCHED THEN INSERT (film_id, user_id) VALUES (v.film_id, v.user_id);";
+        return updateLikes(sqlQuery, likes, 1);
     }
 
-    @Override
-    public void loadLikes(List<Film> films) {
-        String inSql = String.join(", ", Collections.nCopies(films.size(), "?"));
-        String sqlQuery = String.format("SELECT * FROM film_like as fl " +
-                "LEFT JOIN \"user\" AS u ON fl.user_id = u.id " +
-                "WHERE u.login IS NOT NULL AND fl.film_id IN (%s);", inSql);
-        Map<Integer, Film> filmById = films.stream().collect(toMap(Film::getId, identity()));
-        jdbcTemplate.query(
+    private Map<Integer, Integer> updateLikes(String sqlQuery, List<LikeOperation> likes, int sign) {
+        Map<Integer, Integer> deltaByFilmId = new HashMap<>();
+        if (likes.isEmpty()) {
+            return deltaByFilmId;
+        }
+        List<Object[]> batchArgs = likes.stream()
+                .map(like -> new Object[]{like.getFilmId(), like.getUserId()})
+                .collect(Collectors.toList());
+        int[] updateCounts = jdbcTemplate.batchUpdate(sqlQuery, batchArgs);
+        for (int i = 0; i < updateCounts.length; i++) {
+            if (updateCounts[i] > 0) {
+                deltaByFilmId.merge(likes.get(i).getFilmId(), sign * updateCounts[i], Integer::sum);
+            }
+        }
+        changeLikeCounts(deltaByFilmId);
+        return deltaByFilmId;
+    }
+
+    private void changeLikeCounts(Map<Integer, Integer> deltaByFilmId) {
+        if (deltaByFilmId.isEmpty()) {
+            return;
+        }
+        String sqlQuery = "UPDATE film SET like_count = like_count + ? WHERE id = ?;";
+        List<Object[]> batchArgs = deltaByFilmId.entrySet().stream()
+                .map(entry -> new Object[]{entry.getValue(), entry.getKey()})
+                .collect(Collectors.toList());
+        jdbcTemplate.batchUpdate(sqlQuery, batchArgs);
+    }
+
+    private void changeLikeCount(int filmId, int delta) {
+        String sqlQuery = "UPDATE film SET like_count = like_count + ? WHERE id = ?;";
+        jdbcTemplate.update(
                 sqlQuery,
-                (rs) -> {
-                    final int filmId = rs.getInt("film_id");
-                    final int userId = rs.getInt("user_id");
-                    Film film = filmById.get(filmId);
-                    if (film != null) {
-                        film.addLike(userId);
-                    }
-                },
-                filmById.keySet().toArray()
+                delta,
+                filmId
         );
     }
 
@@ -70,28 +109,112 @@ public class LikeRepositoryImpl implements LikeRepository {
     }
 
     @Override
-    public void deleteLike(Film film, User user) {
+    @Transactional
+    public boolean deleteLike(Film film, User user) {
         final int filmId = film.getId();
         final int userId = user.getId();
         String sqlQuery = "DELETE FROM film_like WHERE film_id = ? AND user_id = ?;";
-        jdbcTemplate.update(
+        int deleted = jdbcTemplate.update(
                 sqlQuery,
                 filmId,
                 userId
         );
+        if (deleted > 0) {
+            changeLikeCount(filmId, -deleted);
+        }
+        return deleted > 0;
     }
 
     @Override
-    public void deleteLikes(User user) {
+    @Transactional
+    public List<Integer> deleteLikes(User user) {
         final int userId = user.getId();
+        String filmsQuery = "SELECT film_id FROM film_like WHERE user_id = ?;";
+        List<Integer> likedFilmIds = jdbcTemplate.query(
+                filmsQuery,
+                (rs, rowNum) -> rs.getInt("film_id"),
+                userId
+        );
+        String countQuery = "UPDATE film SET like_count = like_count - 1 " +
+                "WHERE id IN (SELECT film_id FROM film_like WHERE user_id = ?);";
+        jdbcTemplate.update(countQuery, userId);
         String sqlQuery = "DELETE FROM film_like WHERE user_id = ?;";
         jdbcTemplate.update(sqlQuery, userId);
+        return likedFilmIds;
     }
 
     @Override
+    @Transactional
     public void deleteLikes(Film film) {
         final int filmId = film.getId();
         String sqlQuery = "DELETE FROM film_like WHERE film_id = ?;";
         jdbcTemplate.update(sqlQuery, filmId);
+        String countQuery = "UPDATE film SET like_count = 0 WHERE id = ?;";
+        jdbcTemplate.update(countQuery, filmId);
+    }
+
+    @Override
+    @Transactional
+    public Map<Integer, Integer> deleteLikes(List<LikeOperation> likes) {
+        String sqlQuery = "DELETE FROM film_like WHERE film_id = ? AND user_id = ?;";
+        return updateLikes(sqlQuery, likes, -1);
+    }
+
+    @Override
+    public Map<Integer, Set<Integer>> findLikedUserIds(Collection<Integer> filmIds, Collection<Integer> userIds) {
+        Map<Integer, Set<Integer>> userIdsByFilmId = new HashMap<>();
+        if (filmIds.isEmpty() || userIds.isEmpty()) {
+            return userIdsByFilmId;
+        }
+        String sqlQuery = "SELECT film_id, user_id FROM film_like " +
+                "WHERE film_id = ANY(?) AND user_id = ANY(?);";
+        jdbcTemplate.query(
+                sqlQuery,
+                (rs) -> {
+                    userIdsByFilmId.computeIfAbsent(rs.getInt("film_id"), id -> new HashSet<>())
+                            .add(rs.getInt("user_id"));
+                },
+                IdArray.of(filmIds),
+                IdArray.of(userIds)
+        );
+        return userIdsByFilmId;
+    }
+
+    @Override
+    public void forEachLike(BiConsumer<Integer, Integer> consumer) {
+        String sqlQuery = "SELECT film_id, user_id FROM film_like;";
+        jdbcTemplate.query(
+                sqlQuery,
+                (rs) -> {
+                    consumer.accept(rs.getInt("film_id"), rs.getInt("user_id"));
+                }
+        );
+    }
+
+    @Override
+    public Map<Integer, Integer> findLikeCountDrifts() {
+        String sqlQuery = "SELECT f.id, f.like_count - COUNT(fl.user_id) AS drift FROM film AS f " +
+                "LEFT JOIN film_like AS fl ON f.id = fl.film_id " +
+                "GROUP BY f.id, f.like_count " +
+                "HAVING f.like_count <> COUNT(fl.user_id);";
+        Map<Integer, Integer> driftByFilmId = new HashMap<>();
+        jdbcTemplate.query(
+                sqlQuery,
+                (rs) -> {
+                    driftByFilmId.put(rs.getInt("id"), rs.getInt("drift"));
+                }
+        );
+        return driftByFilmId;
+    }
+
+    @Override
+    @Transactional
+    public void recountLikes(Collection<Integer> filmIds) {
+        String sqlQuery = "UPDATE film AS f SET like_count = " +
+                "(SELECT COUNT(*) FROM film_like AS fl WHERE fl.film_id = f.id) WHERE f.id = ?;";
+        List<Object[]> batchArgs = filmIds.stream()
+                .map(filmId -> new Object[]{filmId})
+                .collect(Collectors.toList());
+        jdbcTemplate.batchUpdate(sqlQuery, batchArgs);
     }
 }
\ No newline at end of file
@@ -7,7 +7,6 @@ import ru.yandex.practicum.filmorate.model.Review;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.repository.ReviewLikeRepository;
 
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -40,10 +39,9 @@ public class ReviewLikeRepositoryImpl implements ReviewLikeRepository {
 
     @Override
     public void loadLikes(List<Review> reviews) {
-        String inSql = String.join(", ", Collections.nCopies(reviews.size(), "?"));
-        String sqlQuery = String.format("SELECT * FROM review_like as rl " +
+        String sqlQuery = "SELECT * FROM review_like as rl " +
                 "LEFT JOIN \"user\" AS u ON rl.user_id = u.id " +
-                "WHERE u.login IS NOT NULL AND rl.review_id IN (%s)", inSql);
+                "WHERE u.login IS NOT NULL AND rl.review_id = ANY(?)";
         Map<Integer, Review> reviewById = reviews.stream().collect(toMap(Review::getId, identity()));
         jdbcTemplate.query(
                 sqlQuery,
@@ -59,7 +57,7 @@ public class ReviewLikeRepositoryImpl implements ReviewLikeRepository {
                             review.addDislike(userId);
                     }
                 },
-                reviewById.keySet().toArray()
+                IdArray.of(reviewById.keySet())
         );
     }
 
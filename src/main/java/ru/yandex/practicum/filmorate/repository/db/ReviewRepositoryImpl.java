@@ -1,48 +1,41 @@
 package ru.yandex.practicum.filmorate.repository.db;
 
-import lombok.RequiredArgsConstructor;
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
-import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
 import org.springframework.stereotype.Repository;
-import ru.yandex.practicum.filmorate.exception.ReviewSaveException;
+import ru.yandex.practicum.filmorate.exception.ReviewDoesNotExistException;
 import ru.yandex.practicum.filmorate.model.Review;
 import ru.yandex.practicum.filmorate.repository.ReviewRepository;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 
 @Repository
-@RequiredArgsConstructor
 public class ReviewRepositoryImpl implements ReviewRepository {
     private final JdbcTemplate jdbcTemplate;
+    private final KeyedInsert reviewInsert;
+
+    public ReviewRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.reviewInsert = new KeyedInsert(jdbcTemplate, "review", "review_id",
+                "content", "is_positive", "user_id", "film_id");
+    }
 
     @Override
     public Review save(Review review) {
-        if (findById(review.getId()).isPresent())
+        if (review.getId() != 0)
             return update(review);
-        SimpleJdbcInsert insert = new SimpleJdbcInsert(jdbcTemplate)
-                .withSchemaName("public")
-                .withTableName("review")
-                .usingColumns("content", "is_positive", "user_id", "film_id")
-                .usingGeneratedKeyColumns("review_id");
-        insert.compile();
-
-        int id = (int) insert.executeAndReturnKey(
-                Map.of(
-                        "content", review.getContent(),
-                        "is_positive", review.getIsPositive(),
-                        "user_id", review.getUserId(),
-                        "film_id", review.getFilmId())
+        int id = reviewInsert.insert(
+                review.getContent(),
+                review.getIsPositive(),
+                review.getUserId(),
+                review.getFilmId()
         );
         review.setId(id);
-        Review savedReview = findById(id)
-                .orElseThrow(() -> new ReviewSaveException("Произошла ошибка при сохранении обзора"));
-        return savedReview;
+        return review;
     }
 
     @Override
@@ -87,15 +80,17 @@ public class ReviewRepositoryImpl implements ReviewRepository {
         jdbcTemplate.update(sqlQuery, reviewId);
     }
 
+    // Автор и фильм отзыва не меняются, поэтому они возвращаются из обновленной строки через FINAL TABLE
     private Review update(Review review) {
         final int reviewId = review.getId();
-        String sqlQuery = "UPDATE review SET content = ?,is_positive = ?  WHERE review_id = ?";
-        jdbcTemplate.update(sqlQuery,
-                review.getContent(),
-                review.getIsPositive(),
-                reviewId);
-        return findById(reviewId)
-                .orElseThrow(() -> new ReviewSaveException("Произошла ошибка при обновлении отзыва"));
+        String sqlQuery = "SELECT * FROM FINAL TABLE (UPDATE review SET content = ?, is_positive = ? " +
+                "WHERE review_id = ?)";
+        return jdbcTemplate.query(sqlQuery, new ReviewMapper(),
+                        review.getContent(),
+                        review.getIsPositive(),
+                        reviewId).stream()
+                .findFirst()
+                .orElseThrow(() -> new ReviewDoesNotExistException("Попытка обновить несуществующий обзор"));
     }
 
 
@@ -1,57 +1,58 @@
 package ru.yandex.practicum.filmorate.repository.db;
 
-import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
-import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
 import org.springframework.stereotype.Repository;
-import ru.yandex.practicum.filmorate.exception.UserSaveException;
+import ru.yandex.practicum.filmorate.exception.UserDoesNotExistException;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.repository.EntityCaches;
 import ru.yandex.practicum.filmorate.repository.UserRepository;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Repository
-@RequiredArgsConstructor
 public class UserRepositoryImpl implements UserRepository {
 
 
     private final JdbcTemplate jdbcTemplate;
+    private final KeyedInsert userInsert;
+
+    public UserRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.userInsert = new KeyedInsert(jdbcTemplate, "\"user\"", "id",
+                "email", "login", "name", "birthday");
+    }
 
     @Override
     public User save(User user) {
-        if (findById(user.getId()).isPresent()) {
+        if (user.getId() != 0) {
             return update(user);
         }
-        SimpleJdbcInsert insert = new SimpleJdbcInsert(jdbcTemplate)
-                .withSchemaName("public")
-                .withTableName("\"user\"")
-                .usingColumns("email", "login", "name", "birthday")
-                .usingGeneratedKeyColumns("id");
-        insert.compile();
-
-        int id = (int) insert.executeAndReturnKey(Map.of(
-                "email", user.getEmail(),
-                "login", user.getLogin(),
-                "name", user.getName(),
-                "birthday", user.getBirthday()
-        ));
-
-        User savedUser = findById(id)
-                .orElseThrow(() -> new UserSaveException("Произошла ошибка при сохранении пользователя"));
-        return savedUser;
+        int id = userInsert.insert(
+                user.getEmail(),
+                user.getLogin(),
+                user.getName(),
+                user.getBirthday()
+        );
+        user.setId(id);
+
+        return user;
     }
 
     private User update(User user) {
         final int userId = user.getId();
         String sqlQuery = "UPDATE \"user\" SET email = ?, login = ?, name = ?, " +
                 "birthday = ? WHERE id = ?;";
-        jdbcTemplate.update(
+        int updated = jdbcTemplate.update(
                 sqlQuery,
                 user.getEmail(),
                 user.getLogin(),
@@ -59,12 +60,14 @@ public class UserRepositoryImpl implements UserRepository {
                 user.getBirthday(),
                 userId
         );
-        User updatedUser = findById(userId)
-                .orElseThrow(() -> new UserSaveException("Произошла ошибка при обновлении пользователя"));
-        return updatedUser;
+        if (updated == 0) {
+            throw new UserDoesNotExistException("Попытка обновить несуществующего пользователя");
+        }
+        return user;
     }
 
     @Override
+    @Cacheable(cacheNames = EntityCaches.USERS, key = "#id", unless = "#result == null")
     public Optional<User> findById(int id) {
         String sqlQuery = "SELECT * FROM \"user\" WHERE id = ?;";
 
@@ -98,6 +101,38 @@ public class UserRepositoryImpl implements UserRepository {
         return users;
     }
 
+    @Override
+    public List<User> findPage(int afterId, int limit) {
+        String sqlQuery = "SELECT * FROM \"user\" WHERE id > ? ORDER BY id LIMIT ?;";
+
+        UserMapper mapper = new UserMapper();
+        List<User> users = jdbcTemplate.query(
+                sqlQuery,
+                mapper,
+                afterId,
+                limit
+        );
+        return users;
+    }
+
+    @Override
+    public List<User> findByIds(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String sqlQuery = "SELECT * FROM \"user\" WHERE id = ANY(?) ORDER BY id;";
+        return jdbcTemplate.query(sqlQuery, new UserMapper(), IdArray.of(ids));
+    }
+
+    @Override
+    public Set<Integer> findExistingIds(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return new HashSet<>();
+        }
+        String sqlQuery = "SELECT id FROM \"user\" WHERE id = ANY(?);";
+        return new HashSet<>(jdbcTemplate.queryForList(sqlQuery, Integer.class, IdArray.of(ids)));
+    }
+
     @Override
     public void delete(User user) {
         final int userId = user.getId();
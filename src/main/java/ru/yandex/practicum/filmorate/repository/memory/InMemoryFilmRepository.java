@@ -5,6 +5,7 @@ import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.repository.FilmRepository;
 
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Repository
@@ -41,30 +42,35 @@ public class InMemoryFilmRepository implements FilmRepository {
         return new ArrayList<>(films.values());
     }
 
-    public List<Film> foundCommonFilms(int userId, int friendId) {
-        throw new RuntimeException("Checkpoint not supported");
-    }
-
     @Override
-    public List<Film> findTopFilmsByLikes(int count) {
-        return findAll().stream()
-                .sorted(Comparator.comparingInt(Film::getAmountOfLikes).reversed())
-                .limit(count).collect(Collectors.toList());
+    public void exportFilms(Consumer<Film> consumer) {
+        films.values().stream()
+                .sorted(Comparator.comparingInt(Film::getId))
+                .forEach(consumer);
     }
 
     @Override
-    public List<Film> findTopFilmsByLikesAndGenre(int genreId, int count) {
-        return null;
+    public List<Film> findPage(int afterId, int limit) {
+        return films.values().stream()
+                .filter(film -> film.getId() > afterId)
+                .sorted(Comparator.comparingInt(Film::getId))
+                .limit(limit)
+                .collect(Collectors.toList());
     }
 
     @Override
-    public List<Film> findTopFilmsByLikesAndYear(int year, int count) {
-        return null;
+    public List<Film> findByIds(List<Integer> ids) {
+        return ids.stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
     }
 
     @Override
-    public List<Film> findTopFilmsByLikesAndGenreAndYear(int genreId, int year, int count) {
-        return null;
+    public Set<Integer> findExistingIds(Collection<Integer> ids) {
+        return ids.stream()
+                .filter(films::containsKey)
+                .collect(Collectors.toSet());
     }
 
     @Override
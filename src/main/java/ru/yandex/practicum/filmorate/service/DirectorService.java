@@ -1,10 +1,14 @@
 package ru.yandex.practicum.filmorate.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.DirectorDoesNotExistException;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.ReferenceCatalog;
 import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.repository.DirectorRepository;
+import ru.yandex.practicum.filmorate.repository.EntityCaches;
 import ru.yandex.practicum.filmorate.repository.FilmDirectorRepository;
 
 import java.util.List;
@@ -15,13 +19,22 @@ public class DirectorService {
 
     private final DirectorRepository directorRepository;
     private final FilmDirectorRepository filmDirectorRepository;
+    private final FilmSearchIndex filmSearchIndex;
+    private final ReferenceCatalog referenceCatalog;
 
     public Director create(Director director) {
-        return directorRepository.save(director);
+        return write(director.toBuilder().id(0).build());
+    }
+
+    private Director write(Director director) {
+        Director savedDirector = directorRepository.save(director);
+        filmSearchIndex.putDirector(savedDirector);
+        referenceCatalog.putDirector(savedDirector);
+        return savedDirector;
     }
 
     public Director findById(int id) {
-        return directorRepository.findById(id)
+        return referenceCatalog.findDirector(id)
                 .orElseThrow(() -> new DirectorDoesNotExistException("Попытка получить несуществующего режиссера"));
     }
 
@@ -29,15 +42,19 @@ public class DirectorService {
         return directorRepository.findAll();
     }
 
+    @CacheEvict(cacheNames = EntityCaches.FILMS, allEntries = true)
     public Director update(Director director) {
-        final int directorId = director.getId();
-        directorRepository.findById(directorId)
-                .orElseThrow(() -> new DirectorDoesNotExistException("Попытка обновить несуществующего режиссера"));
-        return create(director);
+        if (director.getId() == 0) {
+            throw new DirectorDoesNotExistException("Попытка обновить несуществующего режиссера");
+        }
+        return write(director);
     }
 
+    @CacheEvict(cacheNames = EntityCaches.FILMS, allEntries = true)
     public void removeDirectorById(int id) {
         filmDirectorRepository.deleteFilmsOfDirectorById(id);
         directorRepository.deleteDirectorById(id);
+        filmSearchIndex.removeDirector(id);
+        referenceCatalog.removeDirector(id);
     }
 }
@@ -30,10 +30,10 @@ public class EventService {
     }
 
     public Event update(Event event) {
-        final int eventId = event.getId();
-        eventRepository.findById(eventId)
-                .orElseThrow(() -> new EventDoesNotExistException("Попытка обновить несуществующее событие"));
-        return create(event);
+        if (event.getId() == 0) {
+            throw new EventDoesNotExistException("Попытка обновить несуществующее событие");
+        }
+        return eventRepository.save(event);
     }
 
 
@@ -2,23 +2,26 @@ package ru.yandex.practicum.filmorate.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.yandex.practicum.filmorate.exception.DirectorDoesNotExistException;
 import ru.yandex.practicum.filmorate.exception.FilmDoesNotExistException;
-import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.exception.GenreDoesNotExistException;
+import ru.yandex.practicum.filmorate.exception.RatingDoesNotExistException;
+import ru.yandex.practicum.filmorate.index.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.ReferenceCatalog;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.model.*;
 import ru.yandex.practicum.filmorate.repository.*;
 
 import java.time.Instant;
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.function.Consumer;
 
 @Service
 public class FilmService {
@@ -26,79 +29,124 @@ public class FilmService {
     private final FilmRepository filmRepository;
     private final FilmGenreRepository filmGenreRepository;
     private final FilmDirectorRepository filmDirectorRepository;
-    private final DirectorRepository directorRepository;
+    private final ReferenceCatalog referenceCatalog;
     private final LikeRepository likeRepository;
     private final UserService userService;
     private final EventRepository eventRepository;
+    private final FilmPopularityIndex filmPopularityIndex;
+    private final FilmSearchIndex filmSearchIndex;
+    private final int maxPageSize;
+    private final RecommendationStore recommendationStore;
+    private final TransactionTemplate transactionTemplate;
 
     @Autowired
     public FilmService(
             @Qualifier("filmRepositoryImpl") FilmRepository filmRepository,
             FilmGenreRepository filmGenreRepository,
             FilmDirectorRepository filmDirectorRepository,
-            DirectorRepository directorRepository,
+            ReferenceCatalog referenceCatalog,
             EventRepository eventRepository,
             LikeRepository likeRepository,
-            UserService userService
+            UserService userService,
+            FilmPopularityIndex filmPopularityIndex,
+            FilmSearchIndex filmSearchIndex,
+            RecommendationStore recommendationStore,
+            TransactionTemplate transactionTemplate,
+            @Value("${filmorate.pagination.max-limit:1000}") int maxPageSize
     ) {
         this.filmRepository = filmRepository;
         this.filmGenreRepository = filmGenreRepository;
         this.filmDirectorRepository = filmDirectorRepository;
-        this.directorRepository = directorRepository;
+        this.referenceCatalog = referenceCatalog;
         this.eventRepository = eventRepository;
         this.likeRepository = likeRepository;
         this.userService = userService;
+        this.filmPopularityIndex = filmPopularityIndex;
+        this.filmSearchIndex = filmSearchIndex;
+        this.recommendationStore = recommendationStore;
+        this.transactionTemplate = transactionTemplate;
+        this.maxPageSize = maxPageSize;
     }
 
     public Film create(Film film) {
-        Film savedFilm = filmRepository.save(film);
-        filmGenreRepository.saveGenres(film);
-        filmDirectorRepository.saveDirectors(film);
+        film.setId(0);
+        resolveReferences(film);
+        Film savedFilm = transactionTemplate.execute(status -> {
+            Film saved = filmRepository.save(film);
+            filmGenreRepository.saveGenres(saved);
+            filmDirectorRepository.saveDirectors(saved);
+            return saved;
+        });
+        return indexFilm(savedFilm);
+    }
+
+    // Жанры, рейтинг и режиссеры уже подставлены из справочника, а id и счетчик лайков
+    // возвращает сама запись, поэтому сохраненный фильм повторно не читается.
+    // Индексы обновляются только после фиксации транзакции
+    private Film indexFilm(Film film) {
+        filmPopularityIndex.putFilm(film);
+        filmSearchIndex.putFilm(film);
+        return film;
+    }
+
+    private void resolveReferences(Film film) {
+        film.setMpa(referenceCatalog.findRating(film.getMpa().getId())
+                .orElseThrow(() -> new RatingDoesNotExistException("Получен некорректный id рейтинга")));
 
-        List<Film> singletonListForLoad = Collections.singletonList(savedFilm);
-        filmGenreRepository.loadGenres(singletonListForLoad);
-        filmDirectorRepository.loadDirectors(singletonListForLoad);
-        likeRepository.loadLikes(singletonListForLoad);
+        if (film.getGenres() != null) {
+            List<Genre> genres = new ArrayList<>();
+            for (Genre genre : film.getGenres()) {
+                genres.add(referenceCatalog.findGenre(genre.getId())
+                        .orElseThrow(() -> new GenreDoesNotExistException("Получен некорректный id жанра")));
+            }
+            film.getGenres().clear();
+            film.getGenres().addAll(genres);
+        }
+        if (film.getDirectors() != null) {
+            List<Director> directors = new ArrayList<>();
+            for (Director director : film.getDirectors()) {
+                directors.add(referenceCatalog.findDirector(director.getId())
+                        .orElseThrow(() -> new DirectorDoesNotExistException("Получен некорректный id режиссера")));
+            }
+            film.getDirectors().clear();
+            film.getDirectors().addAll(directors);
+        }
+    }
 
-        return savedFilm;
+    public void exportFilms(Consumer<Film> consumer) {
+        filmRepository.exportFilms(consumer);
     }
 
     public Film findById(int id) {
         Film film = filmRepository.findById(id)
+                .map(Film::copy)
                 .orElseThrow(() -> new FilmDoesNotExistException("Попытка получить несуществующий фильм"));
-
-        List<Film> singletonListForLoad = Collections.singletonList(film);
-        filmGenreRepository.loadGenres(singletonListForLoad);
-        filmDirectorRepository.loadDirectors(singletonListForLoad);
-        likeRepository.loadLikes(singletonListForLoad);
-
         return film;
     }
 
-    public List<Film> findAll() {
-        List<Film> films = filmRepository.findAll();
-        filmGenreRepository.loadGenres(films);
-        filmDirectorRepository.loadDirectors(films);
-        likeRepository.loadLikes(films);
-        return films;
+    public CursorPage<Film> findPage(int afterId, Integer limit) {
+        final int pageSize = limit == null ? maxPageSize : Math.min(limit, maxPageSize);
+        List<Film> films = filmRepository.findPage(afterId, pageSize + 1);
+        Integer nextCursor = null;
+        if (films.size() > pageSize) {
+            films = films.subList(0, pageSize);
+            nextCursor = films.get(pageSize - 1).getId();
+        }
+        return new CursorPage<>(films, nextCursor);
     }
 
-        public List<Film> getCommonFilms(int userId, int friendId) {
-            userService.findById(userId);
-            userService.findById(friendId);
-
-            List<Film> films = filmRepository.foundCommonFilms(userId, friendId);
-            filmGenreRepository.loadGenres(films);
-            filmDirectorRepository.loadDirectors(films);
-            likeRepository.loadLikes(films);
+    public List<Film> getCommonFilms(int userId, int friendId) {
+        return getCommonFilms(List.of(userId, friendId));
+    }
 
-            films = films.stream().sorted(Comparator.comparingInt(Film::getAmountOfLikes).reversed())
-                .collect(Collectors.toList());
+    public List<Film> getCommonFilms(List<Integer> userIds) {
+        userService.checkUsersExist(userIds);
 
-            return films;
-            }
+        int[] commonFilmIds = recommendationStore.findCommonFilmIds(userIds);
+        return filmRepository.findByIds(filmPopularityIndex.sortByLikes(commonFilmIds));
+    }
 
-    public List<Film> searchFilms(String query, List<String> by) {
+    public List<Film> searchFilms(String query, List<String> by, Integer limit) {
         for (String b : by) {
             if (!b.equals("director") && !b.equals("title")) {
                 throw new FilmDoesNotExistException(
@@ -106,162 +154,130 @@ public class FilmService {
             }
         }
 
-        List<Film> films;
-
-        if (by.size() == 1) {
-            if (by.contains("director")) {
-                films = filmRepository.findTopFilmsByDirector(query);
-            } else {
-                films = filmRepository.findTopFilmsByName(query);
-            }
-        } else {
-            films = List.copyOf(Stream.concat(filmRepository.findTopFilmsByDirector(query).stream(),
-                    filmRepository.findTopFilmsByName(query).stream()).collect(Collectors.toSet()));
-        }
-        filmGenreRepository.loadGenres(films);
-        filmDirectorRepository.loadDirectors(films);
-        likeRepository.loadLikes(films);
-
-        return films.stream().sorted(Comparator.comparingInt(Film::getAmountOfLikes).reversed())
-                .collect(Collectors.toList());
+        int[] foundFilmIds = filmSearchIndex.findFilmIds(query, by.contains("title"), by.contains("director"));
+        List<Integer> topFilmIds = filmPopularityIndex.sortByLikes(foundFilmIds);
+        final int pageSize = limit == null ? maxPageSize : Math.min(limit, maxPageSize);
+        return filmRepository.findByIds(topFilmIds.subList(0, Math.min(pageSize, topFilmIds.size())));
     }
 
+    @CacheEvict(cacheNames = EntityCaches.FILMS, key = "#film.id")
     public Film update(Film film) {
-        final int filmId = film.getId();
-        filmRepository.findById(filmId)
-                .orElseThrow(() -> new FilmDoesNotExistException("Попытка обновить несуществующий фильм"));
-        filmGenreRepository.deleteGenres(film);
-        filmDirectorRepository.deleteDirectors(film);
-        return create(film);
+        if (film.getId() == 0) {
+            throw new FilmDoesNotExistException("Попытка обновить несуществующий фильм");
+        }
+        resolveReferences(film);
+        Film savedFilm = transactionTemplate.execute(status -> {
+            Film saved = filmRepository.save(film);
+            filmGenreRepository.syncGenres(saved);
+            filmDirectorRepository.syncDirectors(saved);
+            return saved;
+        });
+        return indexFilm(savedFilm);
     }
 
+    @CacheEvict(cacheNames = EntityCaches.FILMS, key = "#filmId")
     public Film addLikeToFilm(int filmId, int userId) {
         Film film = filmRepository.findById(filmId)
+                .map(Film::copy)
                 .orElseThrow(() -> new FilmDoesNotExistException("Попытка поставить лайк несуществующему фильму"));
-
-        List<Film> singletonListForLoad = Collections.singletonList(film);
-        filmGenreRepository.loadGenres(singletonListForLoad);
-        filmDirectorRepository.loadDirectors(singletonListForLoad);
-        likeRepository.loadLikes(singletonListForLoad);
-
         User user = userService.findById(userId);
 
-        film.addLike(user);
-        likeRepository.deleteLikes(film);
-        likeRepository.saveLikes(film);
-        eventRepository.save(Event.builder()
-                .timestamp(Instant.now().toEpochMilli())
-                .userId(userId)
-                .type(EventType.LIKE)
-                .operation(EventOperation.ADD)
-                .entityId(filmId).build());
+        Boolean isAdded = transactionTemplate.execute(status -> {
+            boolean isSaved = likeRepository.saveLike(film, user);
+            eventRepository.save(Event.builder()
+                    .timestamp(Instant.now().toEpochMilli())
+                    .userId(userId)
+                    .type(EventType.LIKE)
+                    .operation(EventOperation.ADD)
+                    .entityId(filmId).build());
+            return isSaved;
+        });
+        if (Boolean.TRUE.equals(isAdded)) {
+            film.setAmountOfLikes(film.getAmountOfLikes() + 1);
+            filmPopularityIndex.changeLikes(filmId, 1);
+            recommendationStore.addLike(filmId, userId);
+        }
         return film;
     }
 
+    @CacheEvict(cacheNames = EntityCaches.FILMS, key = "#filmId")
     public void removeLikeFromFilm(int filmId, int userId) {
         Film film = filmRepository.findById(filmId)
                 .orElseThrow(() -> new FilmDoesNotExistException("Попытка убрать лайк у несуществующего фильма"));
         User user = userService.findById(userId);
 
-        likeRepository.deleteLike(film, user);
-        eventRepository.save(Event.builder()
-                .timestamp(Instant.now().toEpochMilli())
-                .userId(userId)
-                .type(EventType.LIKE)
-                .operation(EventOperation.REMOVE)
-                .entityId(filmId).build());
+        Boolean isRemoved = transactionTemplate.execute(status -> {
+            boolean isDeleted = likeRepository.deleteLike(film, user);
+            eventRepository.save(Event.builder()
+                    .timestamp(Instant.now().toEpochMilli())
+                    .userId(userId)
+                    .type(EventType.LIKE)
+                    .operation(EventOperation.REMOVE)
+                    .entityId(filmId).build());
+            return isDeleted;
+        });
+        if (Boolean.TRUE.equals(isRemoved)) {
+            filmPopularityIndex.changeLikes(filmId, -1);
+            recommendationStore.removeLike(filmId, userId);
+        }
     }
 
     public List<Film> findTopFilmsByLikesOrGenreAndYear(int genreId, int year, int count) {
-        List<Film> films;
-
-        if (genreId < 0 || genreId > 6) {
+        if (genreId < 0 || genreId > 0 && referenceCatalog.findGenre(genreId).isEmpty()) {
             throw new GenreDoesNotExistException("Получен некорректный id жанра");
         }
         if (year < 0 || year > 0 && year < 1895) {
             throw new GenreDoesNotExistException("Дата релиза должна быть не ранее 1895 года");
         }
 
-        if (genreId > 0 && year == 0) {
-            films = filmRepository.findTopFilmsByLikesAndGenre(genreId, count);
-        } else if (genreId == 0 && year > 0) {
-            films = filmRepository.findTopFilmsByLikesAndYear(year, count);
-        } else if (genreId > 0) {
-            films = filmRepository.findTopFilmsByLikesAndGenreAndYear(genreId, year, count);
-        } else {
-            films = filmRepository.findTopFilmsByLikes(count);
-        }
-        filmGenreRepository.loadGenres(films);
-        filmDirectorRepository.loadDirectors(films);
-        likeRepository.loadLikes(films);
-
-        return films;
-    }
-
-    public List<Film> getDirectorFilmsByLikesOrYear(int directorId, String sortBy) {
-        switch (sortBy.toLowerCase()) {
-            case "likes":
-                return getDirectorFilms(directorId).stream()
-                        .sorted(Comparator.<Film>comparingInt(film -> film.getLikedIds().size()).reversed())
-                        .collect(Collectors.toList());
-            default:
-                return getDirectorFilms(directorId).stream()
-                        .sorted(Comparator.comparing(Film::getReleaseDate))
-                        .collect(Collectors.toList());
-        }
+        List<Integer> topFilmIds = filmPopularityIndex.findTopFilmIds(genreId, year, count);
+        return filmRepository.findByIds(topFilmIds);
     }
 
-     public List<Film> getDirectorFilms(int directorId) {
-        directorRepository.findById(directorId)
+    public List<Film> getDirectorFilmsByLikesOrYear(int directorId, String sortBy, int offset, Integer limit) {
+        referenceCatalog.findDirector(directorId)
             .orElseThrow(() -> new DirectorDoesNotExistException("Попытка получить фильмы несуществующего режиссера"));
-        return findAll().stream()
-                .filter(film -> film.getDirectors()
-                                        .stream()
-                                        .map(Director::getId)
-                                        .anyMatch(id -> id == directorId)
-                ).collect(Collectors.toList());
-     }
-
-    public List<Film> getRecommendedFilms(int id) {
-        List<Film> films = findAll();
-        User user = userService.findById(id);
 
-        Optional<User> userWithMaxFilmMatchesCount = userService.getUserWithMaxFilmMatchesCount(films, user);
-        if (userWithMaxFilmMatchesCount.isEmpty()) {
-            return Collections.emptyList();
+        final int pageSize = limit == null ? maxPageSize : Math.min(limit, maxPageSize);
+        List<Film> films;
+        if (sortBy.equalsIgnoreCase("likes")) {
+            films = filmRepository.findFilmsOfDirectorByLikes(directorId, offset, pageSize);
+        } else {
+            films = filmRepository.findFilmsOfDirectorByYear(directorId, offset, pageSize);
         }
-        User other = userWithMaxFilmMatchesCount.get();
-
-        List<Film> newRecommendedFilmsForUser = getMismatchedFilmsOfUserWithOther(user, other);
-        return newRecommendedFilmsForUser;
+        return films;
     }
 
-    private List<Film> getMismatchedFilmsOfUserWithOther(User user, User other) {
-        final int userId = user.getId();
-        final int otherId = other.getId();
+    public Recommendations getRecommendedFilms(int id, Integer neighbourCount) {
+        userService.findById(id);
 
-        List<Film> otherFilms = getFilmsOfUser(otherId);
-        List<Film> userFilms = getFilmsOfUser(userId);
-        otherFilms.removeIf(userFilms::contains);
-
-        return otherFilms;
-    }
+        RecommendationStore.StoredRecommendation recommendation =
+                recommendationStore.findRecommendation(id, neighbourCount);
+        List<Film> films = filmRepository.findByIds(recommendation.getFilmIds());
 
-    public List<Film> getFilmsOfUser(int userId) {
-        return findAll().stream()
-                .filter(film -> film.getLikedIds().contains(userId))
-                .collect(Collectors.toList());
+        return Recommendations.builder()
+                .films(films)
+                .computedAt(recommendation.getComputedAt())
+                .stale(recommendation.isStale())
+                .build();
     }
 
+    @CacheEvict(cacheNames = EntityCaches.FILMS, key = "#filmId")
     public void deleteFilmById(int filmId) {
         Film film = findById(filmId);
         delete(film);
     }
 
+    @CacheEvict(cacheNames = EntityCaches.FILMS, key = "#film.id")
     public void delete(Film film) {
-        filmGenreRepository.deleteGenres(film);
-        filmDirectorRepository.deleteDirectors(film);
-        likeRepository.deleteLikes(film);
-        filmRepository.delete(film);
+        transactionTemplate.executeWithoutResult(status -> {
+            filmGenreRepository.deleteGenres(film);
+            filmDirectorRepository.deleteDirectors(film);
+            likeRepository.deleteLikes(film);
+            filmRepository.delete(film);
+        });
+        filmPopularityIndex.removeFilm(film.getId());
+        filmSearchIndex.removeFilm(film.getId());
+        recommendationStore.removeFilm(film.getId());
     }
 }
\ No newline at end of file
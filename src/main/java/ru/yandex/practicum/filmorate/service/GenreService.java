@@ -3,8 +3,8 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.GenreDoesNotExistException;
+import ru.yandex.practicum.filmorate.index.ReferenceCatalog;
 import ru.yandex.practicum.filmorate.model.Genre;
-import ru.yandex.practicum.filmorate.repository.GenreRepository;
 
 import java.util.List;
 
@@ -12,14 +12,14 @@ import java.util.List;
 @RequiredArgsConstructor
 public class GenreService {
 
-    private final GenreRepository genreRepository;
+    private final ReferenceCatalog referenceCatalog;
 
     public Genre findById(int id) {
-        return genreRepository.findById(id)
+        return referenceCatalog.findGenre(id)
                 .orElseThrow(() -> new GenreDoesNotExistException("Попытка получить несуществующий жанр фильма"));
     }
 
     public List<Genre> findAll() {
-        return genreRepository.findAll();
+        return referenceCatalog.findGenres();
     }
 }
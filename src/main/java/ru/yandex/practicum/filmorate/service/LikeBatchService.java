@@ -0,0 +1,221 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.index.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.EventOperation;
+import ru.yandex.practicum.filmorate.model.EventType;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.LikeOperationResult;
+import ru.yandex.practicum.filmorate.model.LikeOperationStatus;
+import ru.yandex.practicum.filmorate.repository.EntityCaches;
+import ru.yandex.practicum.filmorate.repository.EventRepository;
+import ru.yandex.practicum.filmorate.repository.FilmRepository;
+import ru.yandex.practicum.filmorate.repository.LikeRepository;
+import ru.yandex.practicum.filmorate.repository.UserRepository;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+public class LikeBatchService {
+
+    private final FilmRepository filmRepository;
+    private final UserRepository userRepository;
+    private final LikeRepository likeRepository;
+    private final EventRepository eventRepository;
+    private final FilmPopularityIndex filmPopularityIndex;
+    private final RecommendationStore recommendationStore;
+    private final EntityCaches entityCaches;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public LikeBatchService(
+            @Qualifier("filmRepositoryImpl") FilmRepository filmRepository,
+            @Qualifier("userRepositoryImpl") UserRepository userRepository,
+            LikeRepository likeRepository,
+            EventRepository eventRepository,
+            FilmPopularityIndex filmPopularityIndex,
+            RecommendationStore recommendationStore,
+            EntityCaches entityCaches,
+            TransactionTemplate transactionTemplate,
+            @Value("${filmorate.likes.batch.chunk-size:500}") int chunkSize
+    ) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException(
+                    "filmorate.likes.batch.chunk-size должен быть больше нуля, указано: " + chunkSize);
+        }
+        this.filmRepository = filmRepository;
+        this.userRepository = userRepository;
+        this.likeRepository = likeRepository;
+        this.eventRepository = eventRepository;
+        this.filmPopularityIndex = filmPopularityIndex;
+        this.recommendationStore = recommendationStore;
+        this.entityCaches = entityCaches;
+        this.transactionTemplate = transactionTemplate;
+        this.chunkSize = chunkSize;
+    }
+
+    // Каждая порция фиксируется в своей транзакции, поэтому пакет может быть применен частично.
+    // При ошибке базы данных обработка останавливается: уже зафиксированные порции сохраняют свои
+    // результаты, а операции упавшей и всех следующих порций получают статус NOT_APPLIED
+    public List<LikeOperationResult> applyLikeOperations(List<LikeOperation> operations) {
+        List<LikeOperationResult> results = new ArrayList<>(operations.size());
+        for (int from = 0; from < operations.size(); from += chunkSize) {
+            List<LikeOperation> chunk = operations.subList(from, Math.min(from + chunkSize, operations.size()));
+            try {
+                results.addAll(applyChunk(chunk));
+            } catch (DataAccessException | TransactionException e) {
+                log.warn("Порция лайков с позиции {} не применена, обработка пакета остановлена", from, e);
+                operations.subList(from, operations.size()).forEach(operation ->
+                        results.add(makeResult(operation, LikeOperationStatus.NOT_APPLIED,
+                                "Операция не применена из-за ошибки базы данных")));
+                break;
+            }
+        }
+        return results;
+    }
+
+    private List<LikeOperationResult> applyChunk(List<LikeOperation> chunk) {
+        Set<Integer> existingFilmIds = filmRepository.findExistingIds(chunk.stream()
+                .map(LikeOperation::getFilmId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet()));
+        Set<Integer> existingUserIds = userRepository.findExistingIds(chunk.stream()
+                .map(LikeOperation::getUserId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet()));
+
+        List<LikeOperationResult> results = new ArrayList<>(Collections.nCopies(chunk.size(), null));
+        List<Integer> validIndexes = new ArrayList<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            LikeOperation operation = chunk.get(i);
+            if (operation.getFilmId() == null || operation.getUserId() == null
+                    || (operation.getOperation() != EventOperation.ADD
+                    && operation.getOperation() != EventOperation.REMOVE)) {
+                results.set(i, makeResult(operation, LikeOperationStatus.INVALID,
+                        "Необходимо указать filmId, userId и operation со значением ADD или REMOVE"));
+            } else if (!existingFilmIds.contains(operation.getFilmId())) {
+                results.set(i, makeResult(operation, LikeOperationStatus.FILM_NOT_FOUND,
+                        "Попытка изменить лайк несуществующего фильма"));
+            } else if (!existingUserIds.contains(operation.getUserId())) {
+                results.set(i, makeResult(operation, LikeOperationStatus.USER_NOT_FOUND,
+                        "Попытка изменить лайк от несуществующего пользователя"));
+            } else {
+                validIndexes.add(i);
+            }
+        }
+        if (validIndexes.isEmpty()) {
+            return results;
+        }
+
+        AppliedLikes appliedLikes = transactionTemplate.execute(status ->
+                applyValidOperations(chunk, validIndexes, results));
+        if (appliedLikes != null) {
+            appliedLikes.getDeltaByFilmId().forEach(filmPopularityIndex::changeLikes);
+            entityCaches.evictFilms(appliedLikes.getDeltaByFilmId().keySet());
+            appliedLikes.getSaved().forEach(like ->
+                    recommendationStore.addLike(like.getFilmId(), like.getUserId()));
+            appliedLikes.getDeleted().forEach(like ->
+                    recommendationStore.removeLike(like.getFilmId(), like.getUserId()));
+        }
+        return results;
+    }
+
+    private AppliedLikes applyValidOperations(
+            List<LikeOperation> chunk, List<Integer> validIndexes, List<LikeOperationResult> results
+    ) {
+        Set<Integer> filmIds = new HashSet<>();
+        Set<Integer> userIds = new HashSet<>();
+        validIndexes.forEach(i -> {
+            filmIds.add(chunk.get(i).getFilmId());
+            userIds.add(chunk.get(i).getUserId());
+        });
+        Set<Long> storedLikes = new HashSet<>();
+        likeRepository.findLikedUserIds(filmIds, userIds).forEach((filmId, likedUserIds) ->
+                likedUserIds.forEach(userId -> storedLikes.add(likeKey(filmId, userId))));
+
+        // Операции одного пакета применяются по порядку к итоговому набору лайков,
+        // а в базу уходит только разница между итоговым и сохраненным наборами
+        Set<Long> likes = new HashSet<>(storedLikes);
+        Map<Long, LikeOperation> operationByLike = new HashMap<>();
+        List<Event> events = new ArrayList<>(validIndexes.size());
+        for (int i : validIndexes) {
+            LikeOperation operation = chunk.get(i);
+            final long key = likeKey(operation.getFilmId(), operation.getUserId());
+            final boolean isChanged = operation.getOperation() == EventOperation.ADD
+                    ? likes.add(key)
+                    : likes.remove(key);
+            operationByLike.put(key, operation);
+            results.set(i, makeResult(operation,
+                    isChanged ? LikeOperationStatus.APPLIED : LikeOperationStatus.UNCHANGED, null));
+            // Неизменившая набор лайков операция в ленту не попадает
+            if (!isChanged) {
+                continue;
+            }
+            events.add(Event.builder()
+                    .timestamp(Instant.now().toEpochMilli())
+                    .userId(operation.getUserId())
+                    .type(EventType.LIKE)
+                    .operation(operation.getOperation())
+                    .entityId(operation.getFilmId()).build());
+        }
+
+        List<LikeOperation> likesToSave = likes.stream()
+                .filter(key -> !storedLikes.contains(key))
+                .map(operationByLike::get)
+                .collect(Collectors.toList());
+        List<LikeOperation> likesToDelete = storedLikes.stream()
+                .filter(key -> !likes.contains(key))
+                .map(operationByLike::get)
+                .collect(Collectors.toList());
+
+        Map<Integer, Integer> deltaByFilmId = new HashMap<>(likeRepository.saveLikes(likesToSave));
+        likeRepository.deleteLikes(likesToDelete)
+                .forEach((filmId, delta) -> deltaByFilmId.merge(filmId, delta, Integer::sum));
+        eventRepository.saveAll(events);
+
+        log.info("Пакет лайков применен: операций={}, добавлено={}, удалено={}",
+                validIndexes.size(), likesToSave.size(), likesToDelete.size());
+        return new AppliedLikes(deltaByFilmId, likesToSave, likesToDelete);
+    }
+
+    private static long likeKey(int filmId, int userId) {
+        return ((long) filmId << 32) | (userId & 0xFFFFFFFFL);
+    }
+
+    private static LikeOperationResult makeResult(
+            LikeOperation operation, LikeOperationStatus status, String message
+    ) {
+        return LikeOperationResult.builder()
+                .filmId(operation.getFilmId())
+                .userId(operation.getUserId())
+                .operation(operation.getOperation())
+                .status(status)
+                .message(message)
+                .build();
+    }
+
+    @lombok.Value
+    private static class AppliedLikes {
+
+        Map<Integer, Integer> deltaByFilmId;
+        List<LikeOperation> saved;
+        List<LikeOperation> deleted;
+    }
+}
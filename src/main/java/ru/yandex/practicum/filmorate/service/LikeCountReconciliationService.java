@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.index.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.repository.EntityCaches;
+import ru.yandex.practicum.filmorate.repository.LikeRepository;
+
+import java.util.Map;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LikeCountReconciliationService {
+
+    private final LikeRepository likeRepository;
+    private final FilmPopularityIndex filmPopularityIndex;
+    private final EntityCaches entityCaches;
+
+    @Scheduled(
+            initialDelayString = "${filmorate.likes.reconciliation.initial-delay:0}",
+            fixedDelayString = "${filmorate.likes.reconciliation.fixed-delay:3600000}"
+    )
+    public Map<Integer, Integer> reconcile() {
+        Map<Integer, Integer> driftByFilmId = likeRepository.findLikeCountDrifts();
+        if (driftByFilmId.isEmpty()) {
+            log.info("Счетчики лайков фильмов совпадают с таблицей film_like");
+            return driftByFilmId;
+        }
+
+        log.warn("Обнаружено расхождение счетчиков лайков у {} фильмов (id фильма=расхождение): {}",
+                driftByFilmId.size(), driftByFilmId);
+        likeRepository.recountLikes(driftByFilmId.keySet());
+        log.info("Счетчики лайков {} фильмов пересчитаны по таблице film_like", driftByFilmId.size());
+        filmPopularityIndex.rebuild();
+        entityCaches.evictFilms(driftByFilmId.keySet());
+        return driftByFilmId;
+    }
+}
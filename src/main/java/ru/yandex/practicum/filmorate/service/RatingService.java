@@ -3,8 +3,8 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.RatingDoesNotExistException;
+import ru.yandex.practicum.filmorate.index.ReferenceCatalog;
 import ru.yandex.practicum.filmorate.model.RatingMPA;
-import ru.yandex.practicum.filmorate.repository.RatingRepository;
 
 import java.util.List;
 
@@ -12,14 +12,14 @@ import java.util.List;
 @RequiredArgsConstructor
 public class RatingService {
 
-    private final RatingRepository ratingRepository;
+    private final ReferenceCatalog referenceCatalog;
 
     public RatingMPA findById(int id) {
-        return ratingRepository.findById(id)
+        return referenceCatalog.findRating(id)
                 .orElseThrow(() -> new RatingDoesNotExistException("Попытка получить несуществующий рейтинг фильма"));
     }
 
     public List<RatingMPA> findAll() {
-        return ratingRepository.findAll();
+        return referenceCatalog.findRatings();
     }
 }
@@ -0,0 +1,248 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.index.FilmRecommendationIndex;
+
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Slf4j
+@Service
+public class RecommendationStore {
+
+    private final FilmRecommendationIndex filmRecommendationIndex;
+    private final int neighbourCount;
+    private final ExecutorService executor;
+
+    // Хранятся рекомендации ограниченного числа пользователей, давно не запрашивавшие вытесняются
+    // и больше не пересчитываются; при следующем запросе они рассчитываются синхронно
+    private final Cache<Integer, StoredRecommendation> recommendationByUserId;
+
+    // Сохраненные рекомендации, обратные ссылки на соседей и отметки устаревания меняются под одной
+    // блокировкой. Номер из общей последовательности получают и отметка устаревания, и начатый расчет:
+    // результат расчета заменяет только более ранний, а отметка снимается только более поздним расчетом
+    private final Object lock = new Object();
+    private final Map<Integer, Set<Integer>> dependentUserIdsByNeighbourId = new HashMap<>();
+    private final Map<Integer, Long> staleSequenceByUserId = new ConcurrentHashMap<>();
+    private final Map<Integer, Integer> computingCountByUserId = new HashMap<>();
+    private long sequence;
+
+    public RecommendationStore(
+            FilmRecommendationIndex filmRecommendationIndex,
+            @Value("${filmorate.recommendations.neighbours:1}") int neighbourCount,
+            @Value("${filmorate.recommendations.refresh.threads:4}") int threads,
+            @Value("${filmorate.recommendations.max-users:10000}") int maxUsers
+    ) {
+        this.filmRecommendationIndex = filmRecommendationIndex;
+        this.neighbourCount = neighbourCount;
+        this.executor = Executors.newFixedThreadPool(threads);
+        this.recommendationByUserId = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .removalListener(this::onRemoval)
+                .build();
+    }
+
+    public StoredRecommendation findRecommendation(int userId, Integer neighbours) {
+        if (neighbours != null && neighbours != neighbourCount) {
+            FilmRecommendationIndex.Recommendation recommendation =
+                    filmRecommendationIndex.recommend(userId, neighbours);
+            return new StoredRecommendation(recommendation.getFilmIds(), recommendation.getNeighbourIds(),
+                    Instant.now(), false, 0);
+        }
+
+        StoredRecommendation stored = recommendationByUserId.getIfPresent(userId);
+        if (stored == null) {
+            log.debug("Рекомендации пользователя id={} еще не рассчитаны, выполняется синхронный расчет", userId);
+            stored = compute(userId);
+        }
+        return staleSequenceByUserId.containsKey(userId) ? stored.asStale() : stored;
+    }
+
+    public int[] findCommonFilmIds(Collection<Integer> userIds) {
+        return filmRecommendationIndex.findCommonFilmIds(userIds);
+    }
+
+    // Лайк меняет рекомендации самого пользователя и тех, у кого он сосед. Остальные поклонники фильма
+    // не помечаются: иначе каждый лайк популярного фильма стоил бы O(поклонников) и пересчета для всех них
+    public void addLike(int filmId, int userId) {
+        filmRecommendationIndex.addLike(filmId, userId);
+        markStale(userId);
+    }
+
+    public void removeLike(int filmId, int userId) {
+        filmRecommendationIndex.removeLike(filmId, userId);
+        markStale(userId);
+    }
+
+    public void removeFilm(int filmId) {
+        int[] likerIds = filmRecommendationIndex.findLikerIds(filmId);
+        filmRecommendationIndex.removeFilm(filmId);
+        for (int likerId : likerIds) {
+            markStale(likerId);
+        }
+    }
+
+    public void removeUser(int userId) {
+        filmRecommendationIndex.removeUser(userId);
+        markStale(userId);
+        synchronized (lock) {
+            dependentUserIdsByNeighbourId.remove(userId);
+        }
+        recommendationByUserId.invalidate(userId);
+    }
+
+    @Scheduled(
+            initialDelayString = "${filmorate.recommendations.refresh.fixed-delay:60000}",
+            fixedDelayString = "${filmorate.recommendations.refresh.fixed-delay:60000}"
+    )
+    public void scheduleRefresh() {
+        refresh();
+    }
+
+    // Пересчет только ставится в очередь пула, поэтому общий поток планировщика не ждет его окончания.
+    // Отметка устаревания снимается самим расчетом после сохранения нового результата
+    public CompletableFuture<Integer> refresh() {
+        List<Integer> userIds = new ArrayList<>();
+        for (Integer userId : staleSequenceByUserId.keySet()) {
+            if (recommendationByUserId.getIfPresent(userId) != null) {
+                userIds.add(userId);
+            }
+        }
+        if (userIds.isEmpty()) {
+            return CompletableFuture.completedFuture(0);
+        }
+
+        return CompletableFuture.allOf(userIds.stream()
+                        .map(userId -> CompletableFuture.runAsync(() -> compute(userId), executor))
+                        .toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> {
+                    log.info("Пересчитаны рекомендации {} пользователей", userIds.size());
+                    return userIds.size();
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private StoredRecommendation compute(int userId) {
+        final long computeSequence;
+        synchronized (lock) {
+            computeSequence = ++sequence;
+            computingCountByUserId.merge(userId, 1, Integer::sum);
+        }
+        FilmRecommendationIndex.Recommendation recommendation;
+        try {
+            recommendation = filmRecommendationIndex.recommend(userId, neighbourCount);
+        } catch (RuntimeException e) {
+            synchronized (lock) {
+                finishComputing(userId);
+            }
+            throw e;
+        }
+        StoredRecommendation stored = new StoredRecommendation(recommendation.getFilmIds(),
+                recommendation.getNeighbourIds(), Instant.now(), false, computeSequence);
+
+        synchronized (lock) {
+            finishComputing(userId);
+            StoredRecommendation previous = recommendationByUserId.getIfPresent(userId);
+            if (previous != null && previous.getSequence() > computeSequence) {
+                return previous;
+            }
+            recommendationByUserId.put(userId, stored);
+            if (previous != null) {
+                previous.getNeighbourIds().forEach(neighbourId -> unlink(neighbourId, userId));
+            }
+            stored.getNeighbourIds().forEach(neighbourId -> dependentUserIdsByNeighbourId
+                    .computeIfAbsent(neighbourId, id -> new HashSet<>())
+                    .add(userId));
+            staleSequenceByUserId.computeIfPresent(userId,
+                    (id, staleSequence) -> staleSequence < computeSequence ? null : staleSequence);
+        }
+        return stored;
+    }
+
+    private void finishComputing(int userId) {
+        computingCountByUserId.computeIfPresent(userId, (id, count) -> count == 1 ? null : count - 1);
+    }
+
+    // Отмечаются только пользователи с сохраненными или рассчитываемыми рекомендациями,
+    // для остальных нечего пересчитывать
+    private void markStale(int userId) {
+        synchronized (lock) {
+            markStaleLocked(userId);
+            Set<Integer> dependentUserIds = dependentUserIdsByNeighbourId.get(userId);
+            if (dependentUserIds != null) {
+                dependentUserIds.forEach(this::markStaleLocked);
+            }
+        }
+    }
+
+    private void markStaleLocked(int userId) {
+        if (computingCountByUserId.containsKey(userId) || recommendationByUserId.getIfPresent(userId) != null) {
+            staleSequenceByUserId.put(userId, ++sequence);
+        }
+    }
+
+    // Вытеснение и удаление обрабатываются асинхронно, поэтому ссылки снимаются только с тех соседей,
+    // которых нет в рекомендации, успевшей заменить удаленную
+    private void onRemoval(Integer userId, StoredRecommendation removed, RemovalCause cause) {
+        if (userId == null || removed == null || cause == RemovalCause.REPLACED) {
+            return;
+        }
+        synchronized (lock) {
+            StoredRecommendation current = recommendationByUserId.getIfPresent(userId);
+            removed.getNeighbourIds().stream()
+                    .filter(neighbourId -> current == null || !current.getNeighbourIds().contains(neighbourId))
+                    .forEach(neighbourId -> unlink(neighbourId, userId));
+            if (current == null && !computingCountByUserId.containsKey(userId)) {
+                staleSequenceByUserId.remove(userId);
+            }
+        }
+    }
+
+    private void unlink(int neighbourId, int userId) {
+        Set<Integer> dependentUserIds = dependentUserIdsByNeighbourId.get(neighbourId);
+        if (dependentUserIds != null) {
+            dependentUserIds.remove(userId);
+            if (dependentUserIds.isEmpty()) {
+                dependentUserIdsByNeighbourId.remove(neighbourId);
+            }
+        }
+    }
+
+    @lombok.Value
+    public static class StoredRecommendation {
+
+        List<Integer> filmIds;
+        List<Integer> neighbourIds;
+        Instant computedAt;
+        boolean stale;
+        @Getter(AccessLevel.PRIVATE)
+        long sequence;
+
+        private StoredRecommendation asStale() {
+            return new StoredRecommendation(filmIds, neighbourIds, computedAt, true, sequence);
+        }
+    }
+}
@@ -30,8 +30,9 @@ public class ReviewService {
     }
 
     public Review create(Review review) {
-        userService.findById(review.getUserId());
+        userService.checkUsersExist(List.of(review.getUserId()));
         filmService.findById(review.getFilmId());
+        review.setId(0);
         Review savedReview = reviewRepository.save(review);
         List<Review> singletonListForLoad = Collections.singletonList(review);
         reviewLikeRepository.loadLikes(singletonListForLoad);
@@ -74,21 +75,19 @@ public class ReviewService {
     }
 
     public Review update(Review review) {
-        final int reviewId = review.getId();
-        Review updatedReview = reviewRepository.findById(reviewId)
-                .orElseThrow(() -> new ReviewDoesNotExistException("Попытка обновить несуществующий обзор"));
-        userService.findById(review.getUserId());
+        if (review.getId() == 0) {
+            throw new ReviewDoesNotExistException("Попытка обновить несуществующий обзор");
+        }
+        userService.checkUsersExist(List.of(review.getUserId()));
         filmService.findById(review.getFilmId());
-        updatedReview.setContent(review.getContent());
-        updatedReview.setIsPositive(review.getIsPositive());
+        Review savedReview = reviewRepository.save(review);
         eventRepository.save(Event.builder()
                 .timestamp(Instant.now().toEpochMilli())
-                .userId(updatedReview.getUserId())
+                .userId(savedReview.getUserId())
                 .type(EventType.REVIEW)
                 .operation(EventOperation.UPDATE)
-                .entityId(updatedReview.getId()).build());
-        Review savedReview = reviewRepository.save(updatedReview);
-        List<Review> singletonListForLoad = Collections.singletonList(review);
+                .entityId(savedReview.getId()).build());
+        List<Review> singletonListForLoad = Collections.singletonList(savedReview);
         reviewLikeRepository.loadLikes(singletonListForLoad);
         return savedReview;
     }
@@ -3,13 +3,21 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.yandex.practicum.filmorate.exception.UserDoesNotExistException;
+import ru.yandex.practicum.filmorate.index.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.index.FriendGraph;
+import ru.yandex.practicum.filmorate.model.CommonFriendsCount;
+import ru.yandex.practicum.filmorate.model.CursorPage;
 import ru.yandex.practicum.filmorate.model.Event;
 import ru.yandex.practicum.filmorate.model.EventOperation;
 import ru.yandex.practicum.filmorate.model.EventType;
-import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FriendSuggestions;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.repository.EntityCaches;
 import ru.yandex.practicum.filmorate.repository.EventRepository;
 import ru.yandex.practicum.filmorate.repository.FriendRepository;
 import ru.yandex.practicum.filmorate.repository.LikeRepository;
@@ -27,150 +35,231 @@ public class UserService {
     private final FriendRepository friendRepository;
     private final LikeRepository likeRepository;
     private final EventRepository eventRepository;
+    private final FriendGraph friendGraph;
+    private final FilmPopularityIndex filmPopularityIndex;
+    private final RecommendationStore recommendationStore;
+    private final EntityCaches entityCaches;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxPageSize;
+    private final int suggestionCount;
 
     @Autowired
     public UserService(
             @Qualifier("userRepositoryImpl") UserRepository userRepository,
             FriendRepository friendRepository,
             LikeRepository likeRepository,
-            EventRepository eventRepository
+            EventRepository eventRepository,
+            FriendGraph friendGraph,
+            FilmPopularityIndex filmPopularityIndex,
+            RecommendationStore recommendationStore,
+            EntityCaches entityCaches,
+            TransactionTemplate transactionTemplate,
+            @Value("${filmorate.pagination.max-limit:1000}") int maxPageSize,
+            @Value("${filmorate.friends.suggestions.limit:10}") int suggestionCount
     ) {
         this.userRepository = userRepository;
         this.friendRepository = friendRepository;
         this.likeRepository = likeRepository;
         this.eventRepository = eventRepository;
+        this.friendGraph = friendGraph;
+        this.filmPopularityIndex = filmPopularityIndex;
+        this.recommendationStore = recommendationStore;
+        this.entityCaches = entityCaches;
+        this.transactionTemplate = transactionTemplate;
+        this.maxPageSize = maxPageSize;
+        this.suggestionCount = suggestionCount;
     }
 
     public User create(User user) {
+        user.setId(0);
+        return userRepository.save(withDefaultName(user));
+    }
+
+    private User withDefaultName(User user) {
         final String userName = user.getName();
         if (userName == null || userName.isBlank()) {
             log.info("Пользователю user={} присвоено имя, соответствующее логину", user);
             user.setName(user.getLogin());
         }
-        User savedUser = userRepository.save(user);
-        friendRepository.loadFriends(Collections.singletonList(savedUser));
-
-        return savedUser;
+        return user;
     }
 
     public User findById(int id) {
         User user = userRepository.findById(id)
+                .map(User::copy)
                 .orElseThrow(() -> new UserDoesNotExistException("Попытка получить несуществующего пользователя"));
-        friendRepository.loadFriends(Collections.singletonList(user));
+        loadFriends(Collections.singletonList(user));
         return user;
     }
 
-    public List<User> findAll() {
-        List<User> users = userRepository.findAll();
-        friendRepository.loadFriends(users);
-        return users;
+    // Друзья берутся из графа дружбы в памяти и заполняются только в копиях, а не в объектах из кэша
+    private void loadFriends(List<User> users) {
+        for (User user : users) {
+            for (int friendId : friendGraph.findFriendIds(user.getId())) {
+                user.addFriend(friendId);
+            }
+        }
     }
 
+    public void checkUsersExist(Collection<Integer> ids) {
+        Set<Integer> existingIds = userRepository.findExistingIds(ids);
+        if (!existingIds.containsAll(ids)) {
+            throw new UserDoesNotExistException("Попытка получить данные несуществующего пользователя");
+        }
+    }
+
+    public CursorPage<User> findPage(int afterId, Integer limit) {
+        final int pageSize = limit == null ? maxPageSize : Math.min(limit, maxPageSize);
+        List<User> users = userRepository.findPage(afterId, pageSize + 1);
+        Integer nextCursor = null;
+        if (users.size() > pageSize) {
+            users = users.subList(0, pageSize);
+            nextCursor = users.get(pageSize - 1).getId();
+        }
+        loadFriends(users);
+        return new CursorPage<>(users, nextCursor);
+    }
+
+    @CacheEvict(cacheNames = EntityCaches.USERS, key = "#user.id")
     public User update(User user) {
-        final int userId = user.getId();
-        userRepository.findById(userId)
-                .orElseThrow(() -> new UserDoesNotExistException("Попытка обновить несуществующего пользователя"));
-        return create(user);
+        if (user.getId() == 0) {
+            throw new UserDoesNotExistException("Попытка обновить несуществующего пользователя");
+        }
+        User savedUser = userRepository.save(withDefaultName(user));
+        loadFriends(Collections.singletonList(savedUser));
+        return savedUser;
     }
 
+    @CacheEvict(cacheNames = EntityCaches.USERS, key = "#userId")
     public User addFriendToUser(int userId, int friendId) {
         User user = userRepository.findById(userId)
+            .map(User::copy)
             .orElseThrow(() -> new UserDoesNotExistException("Попытка добавить несуществующему пользователю друга"));
-        userRepository.findById(friendId)
+        User friend = userRepository.findById(friendId)
             .orElseThrow(() -> new UserDoesNotExistException("Попытка добавить несуществующего пользователя в друзья"));
 
-        friendRepository.loadFriends(Collections.singletonList(user));
-        user.addFriend(friendId);
-
-        friendRepository.deleteFriends(user);
-        friendRepository.saveFriends(user);
-        eventRepository.save(Event.builder()
-                .timestamp(Instant.now().toEpochMilli())
-                .userId(userId)
-                .type(EventType.FRIEND)
-                .operation(EventOperation.ADD)
-                .entityId(friendId).build());
+        Boolean isAdded = transactionTemplate.execute(status -> {
+            boolean isSaved = friendRepository.saveFriend(user, friend);
+            eventRepository.save(Event.builder()
+                    .timestamp(Instant.now().toEpochMilli())
+                    .userId(userId)
+                    .type(EventType.FRIEND)
+                    .operation(EventOperation.ADD)
+                    .entityId(friendId).build());
+            return isSaved;
+        });
+        if (Boolean.TRUE.equals(isAdded)) {
+            friendGraph.addFriend(userId, friendId);
+        }
+        loadFriends(Collections.singletonList(user));
         return user;
     }
 
+    @CacheEvict(cacheNames = EntityCaches.USERS, key = "#userId")
     public void removeFriendOfUser(int userId, int friendId) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new UserDoesNotExistException("Попытка добавить несуществующему пользователю друга"));
         User friend = userRepository.findById(friendId)
                 .orElseThrow(() -> new UserDoesNotExistException("Попытка добавить несуществующего пользователя в друзья"));
 
-        user.removeFriend(friend);
-        friendRepository.deleteFriend(user, friend);
+        transactionTemplate.executeWithoutResult(status -> {
+            friendRepository.deleteFriend(user, friend);
+            eventRepository.save(Event.builder()
+                    .timestamp(Instant.now().toEpochMilli())
+                    .userId(userId)
+                    .type(EventType.FRIEND)
+                    .operation(EventOperation.REMOVE)
+                    .entityId(friendId).build());
+        });
+        friendGraph.removeFriend(userId, friendId);
+    }
 
-        eventRepository.save(Event.builder()
-                .timestamp(Instant.now().toEpochMilli())
-                .userId(userId)
-                .type(EventType.FRIEND)
-                .operation(EventOperation.REMOVE)
-                .entityId(friendId).build());
+    // Страница ленты - самые новые события до курсора before, отданные в хронологическом порядке.
+    // Следующий курсор - id самого старого события страницы, если до него есть еще события
+    public CursorPage<Event> getUserFeed(int userId, Integer beforeId, Integer limit) {
+        userRepository.findById(userId)
+            .orElseThrow(() -> new UserDoesNotExistException("Попытка получить ленту несуществующего пользователя"));
+        final int pageSize = limit == null ? maxPageSize : Math.min(limit, maxPageSize);
+        List<Event> events = eventRepository.findPageByUserId(
+                userId, beforeId == null ? Integer.MAX_VALUE : beforeId, pageSize + 1);
+        Integer nextCursor = null;
+        if (events.size() > pageSize) {
+            events = events.subList(0, pageSize);
+            nextCursor = events.get(pageSize - 1).getId();
+        }
+        List<Event> chronological = new ArrayList<>(events);
+        Collections.reverse(chronological);
+        return new CursorPage<>(chronological, nextCursor);
     }
 
-    public List<Event> getUserFeed(int userId) {
-        findById(userId);
-        List<Event> events = eventRepository.findByUserId(userId);
-        return events;
+    public CursorPage<User> findFriendsPage(int id, int afterId, Integer limit) {
+        userRepository.findById(id)
+            .orElseThrow(() -> new UserDoesNotExistException("Попытка получить друзей несуществующего пользователя"));
+        final int pageSize = limit == null ? maxPageSize : Math.min(limit, maxPageSize);
+        int[] friendIds = friendGraph.findFriendIdsAfter(id, afterId, pageSize + 1);
+        Integer nextCursor = null;
+        if (friendIds.length > pageSize) {
+            friendIds = Arrays.copyOf(friendIds, pageSize);
+            nextCursor = friendIds[pageSize - 1];
+        }
+        return new CursorPage<>(findUsers(friendIds), nextCursor);
+    }
 
+    public List<User> getFriendsIntersectionOfUsers(int id1, int id2) {
+        checkUsersExist(List.of(id1, id2));
+        return findUsers(friendGraph.findCommonFriendIds(id1, id2));
     }
 
-    public List<User> getFriendsOfUser(int id) {
-        User user = userRepository.findById(id)
-            .orElseThrow(() -> new UserDoesNotExistException("Попытка получить друзей несуществующего пользователя"));
-        friendRepository.loadFriends(Collections.singletonList(user));
+    public CommonFriendsCount countCommonFriends(int id1, int id2) {
+        checkUsersExist(List.of(id1, id2));
+        return new CommonFriendsCount(friendGraph.countCommonFriends(id1, id2));
+    }
 
-        return user.getFriends().stream()
-                .map(userRepository::findById)
-                .filter(Optional::isPresent)
-                .map(Optional::get)
+    // Пользователи возвращаются в порядке убывания числа общих друзей, который определил граф
+    public FriendSuggestions suggestFriends(int id, Integer limit) {
+        userRepository.findById(id)
+            .orElseThrow(() -> new UserDoesNotExistException(
+                    "Попытка получить предложения друзей несуществующего пользователя"));
+        final int count = limit == null ? suggestionCount : Math.min(limit, maxPageSize);
+        FriendGraph.Suggestions suggestions = friendGraph.suggest(id, count);
+        Map<Integer, User> userById = new HashMap<>();
+        findUsers(suggestions.getUserIds().stream().mapToInt(Integer::intValue).toArray())
+                .forEach(user -> userById.put(user.getId(), user));
+        List<User> users = suggestions.getUserIds().stream()
+                .map(userById::get)
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
+        return new FriendSuggestions(users, suggestions.isPartial());
     }
 
-    public List<User> getFriendsIntersectionOfUsers(int id1, int id2) {
-        List<User> friends1 = getFriendsOfUser(id1);
-        List<User> friends2 = getFriendsOfUser(id2);
-
-        friends1.removeIf(friend -> !friends2.contains(friend));
-        return friends1;
-    }
-
-    public Optional<User> getUserWithMaxFilmMatchesCount(List<Film> films, User user) {
-        final int userId = user.getId();
-
-        Map<Integer, Integer> countIntersectionsOfLikedFilmsByUserId = new HashMap<>();
-        films.stream()
-                .filter(film -> film.getLikedIds().contains(userId))
-                .flatMap(film -> film.getLikedIds().stream())
-                .filter(likedIds -> likedIds != userId)
-                .forEach(uId -> countIntersectionsOfLikedFilmsByUserId
-                        .compute(uId, (id, count) -> (count == null) ? 0 : count + 1)
-                );
-
-        Map.Entry<Integer, Integer> maxLikeIntersectionsCountEntry =
-                countIntersectionsOfLikedFilmsByUserId.entrySet()
-                        .stream()
-                        .max(Comparator.comparingInt(Map.Entry::getValue))
-                        .orElse(null);
-        if (maxLikeIntersectionsCountEntry == null) {
-            return Optional.empty();
-        }
-        final int userWithMaxFilmMatchesCount = maxLikeIntersectionsCountEntry.getKey();
-
-        return Optional.of(findById(userWithMaxFilmMatchesCount));
+    private List<User> findUsers(int[] ids) {
+        List<User> users = userRepository.findByIds(Arrays.stream(ids).boxed().collect(Collectors.toList()));
+        loadFriends(users);
+        return users;
     }
 
+    @CacheEvict(cacheNames = EntityCaches.USERS, allEntries = true)
     public void deleteUserById(int userId) {
         User user = findById(userId);
         delete(user);
     }
 
+    // Удаленный пользователь пропадает из друзей других пользователей, поэтому сбрасываются все записи
+    @CacheEvict(cacheNames = EntityCaches.USERS, allEntries = true)
     public void delete(User user) {
-        likeRepository.deleteLikes(user);
-        friendRepository.deleteFriends(user);
-        friendRepository.deleteFriendFromUsers(user);
-        userRepository.delete(user);
+        List<Integer> followerIds = new ArrayList<>();
+        List<Integer> likedFilmIds = transactionTemplate.execute(status -> {
+            List<Integer> filmIds = likeRepository.deleteLikes(user);
+            friendRepository.deleteFriends(user);
+            followerIds.addAll(friendRepository.deleteFriendFromUsers(user));
+            userRepository.delete(user);
+            return filmIds;
+        });
+        friendGraph.removeUser(user.getId(), followerIds);
+        if (likedFilmIds != null) {
+            likedFilmIds.forEach(filmId -> filmPopularityIndex.changeLikes(filmId, -1));
+            entityCaches.evictFilms(likedFilmIds);
+        }
+        recommendationStore.removeUser(user.getId());
     }
 }
@@ -18,12 +18,18 @@ CREATE TABLE IF NOT EXISTS film (
     CONSTRAINT duration_is_positive CHECK (duration > 0)
 );
 
+ALTER TABLE film ADD COLUMN IF NOT EXISTS like_count integer NOT NULL DEFAULT 0;
+CREATE INDEX IF NOT EXISTS film_like_count_idx ON film (like_count DESC, id);
+CREATE INDEX IF NOT EXISTS film_release_date_idx ON film (release_date);
+
 CREATE TABLE IF NOT EXISTS film_genre (
     film_id integer NOT NULL REFERENCES film (id),
     genre_id integer NOT NULL REFERENCES genre (id),
     UNIQUE (film_id, genre_id)
 );
 
+CREATE INDEX IF NOT EXISTS film_genre_genre_id_idx ON film_genre (genre_id);
+
 CREATE TABLE IF NOT EXISTS "user" (
     id integer GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
     email varchar(32) NOT NULL,
@@ -38,6 +44,8 @@ CREATE TABLE IF NOT EXISTS film_like (
     UNIQUE (film_id, user_id)
 );
 
+CREATE INDEX IF NOT EXISTS film_like_user_id_idx ON film_like (user_id);
+
 CREATE TABLE IF NOT EXISTS friendship (
     user_id integer NOT NULL REFERENCES "user" (id),
     friend_id integer NOT NULL REFERENCES "user" (id),
@@ -56,6 +64,8 @@ CREATE TABLE IF NOT EXISTS film_director (
     UNIQUE (film_id, director_id)
 );
 
+CREATE INDEX IF NOT EXISTS film_director_director_id_idx ON film_director (director_id);
+
 CREATE TABLE IF NOT EXISTS review(
     review_id integer GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
     content text NOT NULL,
@@ -82,4 +92,5 @@ CREATE TABLE IF NOT EXISTS event (
     entity_id integer NOT NULL,
     CONSTRAINT fk_event_type_event CHECK (event_type IN ('LIKE','REVIEW','FRIEND')),
     CONSTRAINT fk_operation_event CHECK (operation IN ('REMOVE','ADD','UPDATE'))
-);
\ No newline at end of file
+);
+CREATE INDEX IF NOT EXISTS event_user_id_event_id_idx ON event (user_id, event_id);
\ No newline at end of file
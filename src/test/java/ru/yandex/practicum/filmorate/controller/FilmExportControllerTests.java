@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// Страница выгрузки меньше числа фильмов, чтобы выгрузка проходила через несколько страниц
+@SpringBootTest(properties = "filmorate.films.export.chunk-size=2")
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class FilmExportControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    public void shouldExportEveryFilmAsJsonLineWithGenresAndDirectors() throws Exception {
+        mockMvc.perform(post("/directors")
+                .content("{\"name\": \"director\"}")
+                .contentType(MediaType.APPLICATION_JSON)).andExpect(status().isOk());
+        mockMvc.perform(post("/films")
+                .content("{\"name\": \"film1\", \"description\": \"description\", \"releaseDate\": \"1967-03-25\"," +
+                        " \"duration\": 100, \"mpa\": { \"id\": 1}, \"genres\": [{\"id\": 1}, {\"id\": 2}]," +
+                        " \"directors\": [{\"id\": 1}]}")
+                .contentType(MediaType.APPLICATION_JSON)).andExpect(status().isOk());
+        mockMvc.perform(post("/films")
+                .content("{\"name\": \"film2\", \"description\": \"description\", \"releaseDate\": \"1967-03-25\"," +
+                        " \"duration\": 100, \"mpa\": { \"id\": 2}}")
+                .contentType(MediaType.APPLICATION_JSON)).andExpect(status().isOk());
+        mockMvc.perform(post("/films")
+                .content("{\"name\": \"film3\", \"description\": \"description\", \"releaseDate\": \"1967-03-25\"," +
+                        " \"duration\": 100, \"mpa\": { \"id\": 3}, \"genres\": [{\"id\": 6}]}")
+                .contentType(MediaType.APPLICATION_JSON)).andExpect(status().isOk());
+
+        MvcResult started = mockMvc.perform(get("/films/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult result = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn();
+
+        String[] lines = new String(result.getResponse().getContentAsByteArray(), StandardCharsets.UTF_8)
+                .split("\n");
+        Map<String, JsonNode> filmByName = new HashMap<>();
+        int previousId = 0;
+        for (String line : lines) {
+            JsonNode film = objectMapper.readTree(line);
+            assertTrue(film.get("id").asInt() > previousId);
+            previousId = film.get("id").asInt();
+            filmByName.put(film.get("name").asText(), film);
+        }
+        JsonNode film1 = filmByName.get("film1");
+        JsonNode film2 = filmByName.get("film2");
+        JsonNode film3 = filmByName.get("film3");
+        assertEquals(2, film1.get("genres").size());
+        assertEquals("director", film1.get("directors").get(0).get("name").asText());
+        assertEquals(0, film2.get("genres").size());
+        assertEquals(0, film2.get("directors").size());
+        assertEquals(6, film3.get("genres").get(0).get("id").asInt());
+    }
+}
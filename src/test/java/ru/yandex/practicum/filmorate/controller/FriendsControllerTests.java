@@ -0,0 +1,94 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class FriendsControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private final int[] ids = new int[6];
+
+    @BeforeEach
+    public void createUsers() throws Exception {
+        for (int i = 0; i < ids.length; i++) {
+            MvcResult created = mockMvc.perform(post("/users")
+                    .content("{\"login\": \"login" + i + "\", \"name\": \"name\", \"email\": \"mail" + i +
+                            "@mail.ru\", \"birthday\": \"1990-01-01\"}")
+                    .contentType(MediaType.APPLICATION_JSON)).andExpect(status().isOk()).andReturn();
+            ids[i] = JsonPath.read(created.getResponse().getContentAsString(), "$.id");
+        }
+    }
+
+    @Test
+    public void shouldIntersectFriendsAndCountCommonFriends() throws Exception {
+        addFriends(ids[0], ids[2], ids[3], ids[4]);
+        addFriends(ids[1], ids[5], ids[4], ids[2]);
+
+        mockMvc.perform(get("/users/" + ids[0] + "/friends/common/" + ids[1]))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value(ids[2]))
+                .andExpect(jsonPath("$[1].id").value(ids[4]))
+                .andExpect(jsonPath("$[0].login").value("login2"));
+        mockMvc.perform(get("/users/" + ids[0] + "/friends/common/" + ids[1] + "/count"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(2));
+        mockMvc.perform(get("/users/" + ids[2] + "/friends/common/" + ids[3] + "/count"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(0));
+        mockMvc.perform(get("/users/" + ids[0] + "/friends/common/9999/count"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void shouldSuggestFriendsOfFriendsRankedByMutualFriends() throws Exception {
+        addFriends(ids[0], ids[1], ids[2]);
+        addFriends(ids[1], ids[5], ids[3]);
+        addFriends(ids[2], ids[3], ids[4], ids[0], ids[1]);
+
+        mockMvc.perform(get("/users/" + ids[0] + "/friends/suggestions"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Suggestions-Partial", "false"))
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].id").value(ids[3]))
+                .andExpect(jsonPath("$[1].id").value(ids[4]))
+                .andExpect(jsonPath("$[2].id").value(ids[5]));
+        mockMvc.perform(get("/users/" + ids[0] + "/friends/suggestions").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].login").value("login3"));
+        mockMvc.perform(get("/users/" + ids[5] + "/friends/suggestions"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+        mockMvc.perform(get("/users/9999/friends/suggestions"))
+                .andExpect(status().isNotFound());
+    }
+
+    private void addFriends(int userId, int... friendIds) throws Exception {
+        for (int friendId : friendIds) {
+            mockMvc.perform(put("/users/" + userId + "/friends/" + friendId)).andExpect(status().isOk());
+        }
+    }
+}
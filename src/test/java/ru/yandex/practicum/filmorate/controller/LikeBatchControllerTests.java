@@ -0,0 +1,99 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.yandex.practicum.filmorate.repository.LikeRepository;
+
+import java.util.Collections;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Порция меньше пакета, чтобы пакет применялся в несколько транзакций
+@SpringBootTest(properties = "filmorate.likes.batch.chunk-size=2")
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class LikeBatchControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @SpyBean
+    private LikeRepository likeRepository;
+
+    @Test
+    public void shouldReturn400IfOperationIsNull() throws Exception {
+        mockMvc.perform(post("/films/likes")
+                .content("[{\"filmId\": 1, \"userId\": 1, \"operation\": \"ADD\"}, null]")
+                .contentType(MediaType.APPLICATION_JSON)).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void shouldReturn400IfBatchIsTooLarge() throws Exception {
+        String operations = "[" + String.join(",", Collections.nCopies(10_001, "{}")) + "]";
+
+        mockMvc.perform(post("/films/likes")
+                .content(operations)
+                .contentType(MediaType.APPLICATION_JSON)).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void shouldKeepCommittedChunksAndReportRestAsNotApplied() throws Exception {
+        int filmId = create("/films", "{\"name\": \"film\", \"description\": \"description\"," +
+                " \"releaseDate\": \"1967-03-25\", \"duration\": 100, \"mpa\": { \"id\": 1}}");
+        int userId1 = create("/users", "{\"login\": \"login1\", \"name\": \"name\"," +
+                " \"email\": \"mail1@mail.ru\", \"birthday\": \"1990-01-01\"}");
+        int userId2 = create("/users", "{\"login\": \"login2\", \"name\": \"name\"," +
+                " \"email\": \"mail2@mail.ru\", \"birthday\": \"1990-01-01\"}");
+        doCallRealMethod()
+                .doThrow(new DataRetrievalFailureException("Ошибка чтения лайков"))
+                .doCallRealMethod()
+                .when(likeRepository).findLikedUserIds(any(), any());
+
+        mockMvc.perform(post("/films/likes")
+                .content("[" + operation(filmId, userId1, "ADD") + "," + operation(filmId, userId2, "ADD") + ","
+                        + operation(filmId, userId1, "REMOVE") + "," + operation(filmId, userId2, "REMOVE") + ","
+                        + operation(filmId, userId1, "ADD") + "]")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(5))
+                .andExpect(jsonPath("$[0].status").value("APPLIED"))
+                .andExpect(jsonPath("$[1].status").value("APPLIED"))
+                .andExpect(jsonPath("$[2].status").value("NOT_APPLIED"))
+                .andExpect(jsonPath("$[3].status").value("NOT_APPLIED"))
+                .andExpect(jsonPath("$[4].status").value("NOT_APPLIED"))
+                .andExpect(jsonPath("$[4].userId").value(userId1));
+
+        // Первая порция зафиксирована, поэтому повторное добавление лайка ничего не меняет
+        mockMvc.perform(post("/films/likes")
+                .content("[" + operation(filmId, userId1, "ADD") + "]")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("UNCHANGED"));
+    }
+
+    private int create(String path, String body) throws Exception {
+        MvcResult created = mockMvc.perform(post(path)
+                .content(body)
+                .contentType(MediaType.APPLICATION_JSON)).andExpect(status().isOk()).andReturn();
+        return JsonPath.read(created.getResponse().getContentAsString(), "$.id");
+    }
+
+    private static String operation(int filmId, int userId, String operation) {
+        return "{\"filmId\": " + filmId + ", \"userId\": " + userId + ", \"operation\": \"" + operation + "\"}";
+    }
+}
@@ -0,0 +1,194 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = "filmorate.pagination.max-limit=3")
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class PaginationControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    public void shouldWalkFilmsPagesByCursor() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            mockMvc.perform(post("/films")
+                    .content("{\"name\": \"film" + i + "\", \"description\": \"description\"," +
+                            " \"releaseDate\": \"1967-03-25\", \"duration\": 100, \"mpa\": { \"id\": 1}}")
+                    .contentType(MediaType.APPLICATION_JSON)).andExpect(status().isOk());
+        }
+
+        MvcResult first = mockMvc.perform(get("/films").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].name").value("film0"))
+                .andReturn();
+        String cursor = first.getResponse().getHeader("X-Next-Cursor");
+
+        MvcResult second = mockMvc.perform(get("/films").param("after", cursor).param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].name").value("film2"))
+                .andReturn();
+        cursor = second.getResponse().getHeader("X-Next-Cursor");
+
+        mockMvc.perform(get("/films").param("after", cursor).param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].name").value("film4"))
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
+
+        MvcResult capped = mockMvc.perform(get("/films"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andReturn();
+        assertEquals(capped.getResponse().getHeader("X-Next-Cursor"),
+                mockMvc.perform(get("/films").param("limit", "100")).andReturn().getResponse()
+                        .getHeader("X-Next-Cursor"));
+    }
+
+    @Test
+    public void shouldClampSearchLimitToMaxPageSize() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            mockMvc.perform(post("/films")
+                    .content("{\"name\": \"film" + i + "\", \"description\": \"description\"," +
+                            " \"releaseDate\": \"1967-03-25\", \"duration\": 100, \"mpa\": { \"id\": 1}}")
+                    .contentType(MediaType.APPLICATION_JSON)).andExpect(status().isOk());
+        }
+
+        mockMvc.perform(get("/films/search").param("query", "film").param("by", "title"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3));
+        mockMvc.perform(get("/films/search").param("query", "film").param("by", "title")
+                        .param("limit", String.valueOf(Integer.MAX_VALUE)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3));
+        mockMvc.perform(get("/films/search").param("query", "film").param("by", "title").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2));
+        mockMvc.perform(get("/films/search").param("query", "film").param("by", "title").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void shouldWalkUsersPagesByCursor() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(post("/users")
+                    .content("{\"login\": \"login" + i + "\", \"name\": \"name\", \"email\": \"mail" + i +
+                            "@mail.ru\", \"birthday\": \"1990-01-01\"}")
+                    .contentType(MediaType.APPLICATION_JSON)).andExpect(status().isOk());
+        }
+
+        MvcResult first = mockMvc.perform(get("/users").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[1].login").value("login1"))
+                .andReturn();
+
+        mockMvc.perform(get("/users").param("after", first.getResponse().getHeader("X-Next-Cursor")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].login").value("login2"))
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
+
+        mockMvc.perform(get("/users").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void shouldWalkFriendsPagesByCursor() throws Exception {
+        int[] ids = new int[5];
+        for (int i = 0; i < ids.length; i++) {
+            MvcResult created = mockMvc.perform(post("/users")
+                    .content("{\"login\": \"login" + i + "\", \"name\": \"name\", \"email\": \"mail" + i +
+                            "@mail.ru\", \"birthday\": \"1990-01-01\"}")
+                    .contentType(MediaType.APPLICATION_JSON)).andExpect(status().isOk()).andReturn();
+            ids[i] = JsonPath.read(created.getResponse().getContentAsString(), "$.id");
+        }
+        for (int i = ids.length - 1; i > 0; i--) {
+            mockMvc.perform(put("/users/" + ids[0] + "/friends/" + ids[i])).andExpect(status().isOk());
+        }
+
+        MvcResult first = mockMvc.perform(get("/users/" + ids[0] + "/friends").param("limit", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].id").value(ids[1]))
+                .andExpect(jsonPath("$[2].id").value(ids[3]))
+                .andReturn();
+
+        mockMvc.perform(get("/users/" + ids[0] + "/friends")
+                        .param("after", first.getResponse().getHeader("X-Next-Cursor")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(ids[4]))
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
+
+        mockMvc.perform(get("/users/" + ids[1] + "/friends/common/" + ids[2]))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+        mockMvc.perform(get("/users/" + ids[0] + "/friends/common/" + ids[0]))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(4));
+        mockMvc.perform(get("/users/9999/friends"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void shouldWalkFeedPagesBackwardsInChronologicalOrder() throws Exception {
+        int[] ids = new int[5];
+        for (int i = 0; i < ids.length; i++) {
+            MvcResult created = mockMvc.perform(post("/users")
+                    .content("{\"login\": \"login" + i + "\", \"name\": \"name\", \"email\": \"mail" + i +
+                            "@mail.ru\", \"birthday\": \"1990-01-01\"}")
+                    .contentType(MediaType.APPLICATION_JSON)).andExpect(status().isOk()).andReturn();
+            ids[i] = JsonPath.read(created.getResponse().getContentAsString(), "$.id");
+        }
+        for (int i = 1; i < ids.length; i++) {
+            mockMvc.perform(put("/users/" + ids[0] + "/friends/" + ids[i])).andExpect(status().isOk());
+        }
+
+        MvcResult newest = mockMvc.perform(get("/users/" + ids[0] + "/feed").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].entityId").value(ids[3]))
+                .andExpect(jsonPath("$[1].entityId").value(ids[4]))
+                .andReturn();
+        int oldestShownId = JsonPath.read(newest.getResponse().getContentAsString(), "$[0].eventId");
+        assertEquals(String.valueOf(oldestShownId), newest.getResponse().getHeader("X-Next-Cursor"));
+
+        mockMvc.perform(get("/users/" + ids[0] + "/feed").param("before", String.valueOf(oldestShownId)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].entityId").value(ids[1]))
+                .andExpect(jsonPath("$[1].entityId").value(ids[2]))
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
+
+        mockMvc.perform(get("/users/" + ids[0] + "/feed"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[2].entityId").value(ids[4]))
+                .andExpect(header().exists("X-Next-Cursor"));
+        mockMvc.perform(get("/users/" + ids[1] + "/feed"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+        mockMvc.perform(get("/users/9999/feed"))
+                .andExpect(status().isNotFound());
+    }
+}
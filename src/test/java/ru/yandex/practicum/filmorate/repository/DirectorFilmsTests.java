@@ -0,0 +1,123 @@
+package ru.yandex.practicum.filmorate.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.RatingMPA;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.DirectorService;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = "filmorate.pagination.max-limit=3")
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class DirectorFilmsTests {
+
+    private final FilmRepository filmRepository;
+    private final FilmService filmService;
+    private final UserService userService;
+    private final DirectorService directorService;
+
+    private final List<Integer> filmIds = new ArrayList<>();
+    private int directorId;
+
+    @Autowired
+    DirectorFilmsTests(
+            @Qualifier("filmRepositoryImpl") FilmRepository filmRepository,
+            FilmService filmService,
+            UserService userService,
+            DirectorService directorService
+    ) {
+        this.filmRepository = filmRepository;
+        this.filmService = filmService;
+        this.userService = userService;
+        this.directorService = directorService;
+    }
+
+    // Пять фильмов режиссера выпущены по году подряд, лайков у них 1, 3, 0, 2 и 0; шестой фильм без режиссера
+    @BeforeEach
+    void saveFilms() {
+        Director director = directorService.create(Director.builder().name("director").build());
+        directorId = director.getId();
+        int[] likeCounts = {1, 3, 0, 2, 0};
+        List<Integer> userIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            userIds.add(userService.create(User.builder()
+                    .email("user" + i + "@yandex.ru")
+                    .login("user" + i)
+                    .name("user" + i)
+                    .birthday(LocalDate.of(1990, 1, 1))
+                    .build()).getId());
+        }
+        for (int i = 0; i < likeCounts.length; i++) {
+            Film film = Film.builder()
+                    .name("film" + i)
+                    .description("description")
+                    .releaseDate(LocalDate.of(2000 + i, 1, 1))
+                    .duration(100)
+                    .mpa(new RatingMPA(1, null))
+                    .build();
+            film.addDirector(director);
+            final int filmId = filmService.create(film).getId();
+            filmIds.add(filmId);
+            for (int u = 0; u < likeCounts[i]; u++) {
+                filmService.addLikeToFilm(filmId, userIds.get(u));
+            }
+        }
+        filmService.create(Film.builder()
+                .name("other")
+                .description("description")
+                .releaseDate(LocalDate.of(1999, 1, 1))
+                .duration(100)
+                .mpa(new RatingMPA(1, null))
+                .build());
+    }
+
+    @Test
+    void shouldPageDirectorFilmsByLikes() {
+        assertEquals(ids(1, 3, 0, 2, 4), findIds(filmRepository.findFilmsOfDirectorByLikes(directorId, 0, 10)));
+        assertEquals(ids(1, 3), findIds(filmRepository.findFilmsOfDirectorByLikes(directorId, 0, 2)));
+        assertEquals(ids(0, 2), findIds(filmRepository.findFilmsOfDirectorByLikes(directorId, 2, 2)));
+        assertEquals(ids(4), findIds(filmRepository.findFilmsOfDirectorByLikes(directorId, 4, 2)));
+        assertEquals(List.of(), findIds(filmRepository.findFilmsOfDirectorByLikes(directorId, 5, 2)));
+    }
+
+    @Test
+    void shouldPageDirectorFilmsByYear() {
+        assertEquals(ids(0, 1, 2, 3, 4), findIds(filmRepository.findFilmsOfDirectorByYear(directorId, 0, 10)));
+        assertEquals(ids(1, 2), findIds(filmRepository.findFilmsOfDirectorByYear(directorId, 1, 2)));
+        assertEquals(ids(3, 4), findIds(filmRepository.findFilmsOfDirectorByYear(directorId, 3, 5)));
+    }
+
+    @Test
+    void shouldCapDirectorPageByMaxLimit() {
+        assertEquals(ids(0, 1, 2), findIds(filmService.getDirectorFilmsByLikesOrYear(directorId, "year", 0, null)));
+        assertEquals(ids(1, 3, 0), findIds(filmService.getDirectorFilmsByLikesOrYear(directorId, "likes", 0, 100)));
+    }
+
+    private List<Integer> ids(int... indexes) {
+        List<Integer> ids = new ArrayList<>();
+        for (int index : indexes) {
+            ids.add(filmIds.get(index));
+        }
+        return ids;
+    }
+
+    private static List<Integer> findIds(List<Film> films) {
+        return films.stream().map(Film::getId).collect(Collectors.toList());
+    }
+}
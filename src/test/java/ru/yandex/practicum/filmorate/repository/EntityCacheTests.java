@@ -0,0 +1,130 @@
+package ru.yandex.practicum.filmorate.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.model.EventOperation;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.RatingMPA;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.LikeBatchService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class EntityCacheTests {
+
+    private final FilmService filmService;
+    private final UserService userService;
+    private final LikeBatchService likeBatchService;
+    private final CacheManager cacheManager;
+    private final MeterRegistry meterRegistry;
+
+    private Film film;
+    private User user;
+
+    @Autowired
+    EntityCacheTests(
+            FilmService filmService,
+            UserService userService,
+            LikeBatchService likeBatchService,
+            CacheManager cacheManager,
+            MeterRegistry meterRegistry
+    ) {
+        this.filmService = filmService;
+        this.userService = userService;
+        this.likeBatchService = likeBatchService;
+        this.cacheManager = cacheManager;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @BeforeEach
+    void saveEntities() {
+        film = filmService.create(Film.builder()
+                .name("film")
+                .description("description")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .mpa(new RatingMPA(1, "G"))
+                .build());
+        user = userService.create(User.builder()
+                .email("login@yandex.ru")
+                .login("login")
+                .name("name")
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build());
+    }
+
+    @Test
+    void shouldServeRepeatedLookupsFromCacheAndReportStatistics() {
+        filmService.findById(film.getId());
+        filmService.findById(film.getId());
+        filmService.findById(film.getId());
+
+        assertNotNull(cachedFilm(film.getId()));
+        assertTrue(meterRegistry.get("cache.gets")
+                .tag("cache", EntityCaches.FILMS)
+                .tag("result", "hit")
+                .functionCounter()
+                .count() >= 2);
+    }
+
+    @Test
+    void shouldEvictEntriesOnServiceWrites() {
+        filmService.findById(film.getId());
+        filmService.addLikeToFilm(film.getId(), user.getId());
+        assertNull(cachedFilm(film.getId()));
+        assertEquals(1, filmService.findById(film.getId()).getAmountOfLikes());
+
+        likeBatchService.applyLikeOperations(List.of(
+                new LikeOperation(film.getId(), user.getId(), EventOperation.REMOVE)));
+        assertNull(cachedFilm(film.getId()));
+        assertEquals(0, filmService.findById(film.getId()).getAmountOfLikes());
+
+        User friend = userService.create(User.builder()
+                .email("friend@yandex.ru")
+                .login("friend")
+                .name("friend")
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build());
+        userService.findById(user.getId());
+        userService.addFriendToUser(user.getId(), friend.getId());
+        assertEquals(1, userService.findById(user.getId()).getFriends().size());
+        userService.removeFriendOfUser(user.getId(), friend.getId());
+        assertTrue(userService.findById(user.getId()).getFriends().isEmpty());
+    }
+
+    @Test
+    void shouldNotLeakChangesOfReturnedEntitiesIntoCache() {
+        Film found = filmService.findById(film.getId());
+        found.setName("changed");
+        found.setAmountOfLikes(10);
+        assertEquals("film", filmService.findById(film.getId()).getName());
+        assertEquals(0, filmService.findById(film.getId()).getAmountOfLikes());
+
+        User foundUser = userService.findById(user.getId());
+        foundUser.addFriend(user.getId() + 1);
+        assertTrue(userService.findById(user.getId()).getFriends().isEmpty());
+    }
+
+    private Object cachedFilm(int id) {
+        return Objects.requireNonNull(cacheManager.getCache(EntityCaches.FILMS)).get(id);
+    }
+}
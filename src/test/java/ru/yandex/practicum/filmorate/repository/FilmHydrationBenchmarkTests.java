@@ -0,0 +1,143 @@
+package ru.yandex.practicum.filmorate.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.RatingMPA;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Запуск: mvn test -Dtest=FilmHydrationBenchmarkTests -Dfilmorate.benchmark=true
+@Slf4j
+@SpringBootTest
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@EnabledIfSystemProperty(named = "filmorate.benchmark", matches = "true")
+class FilmHydrationBenchmarkTests {
+
+    private static final int FILM_COUNT = 10_000;
+    private static final int DIRECTOR_COUNT = 100;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 10;
+
+    private final FilmRepository filmRepository;
+    private final FilmGenreRepository filmGenreRepository;
+    private final FilmDirectorRepository filmDirectorRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    private final List<Integer> filmIds = new ArrayList<>();
+
+    @Autowired
+    FilmHydrationBenchmarkTests(
+            @Qualifier("filmRepositoryImpl") FilmRepository filmRepository,
+            FilmGenreRepository filmGenreRepository,
+            FilmDirectorRepository filmDirectorRepository,
+            JdbcTemplate jdbcTemplate
+    ) {
+        this.filmRepository = filmRepository;
+        this.filmGenreRepository = filmGenreRepository;
+        this.filmDirectorRepository = filmDirectorRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @BeforeEach
+    void saveFilms() {
+        jdbcTemplate.batchUpdate("INSERT INTO director (name) VALUES (?);",
+                IntStream.range(0, DIRECTOR_COUNT)
+                        .mapToObj(i -> new Object[]{"director" + i})
+                        .collect(Collectors.toList()));
+        List<Integer> directorIds = jdbcTemplate.queryForList("SELECT id FROM director ORDER BY id;", Integer.class);
+
+        jdbcTemplate.batchUpdate("INSERT INTO film (rating_mpa_id, name, description, release_date, duration) " +
+                        "VALUES (?, ?, ?, ?, ?);",
+                IntStream.range(0, FILM_COUNT)
+                        .mapToObj(i -> new Object[]{i % 5 + 1, "film" + i, "description",
+                                Date.valueOf(LocalDate.of(1950 + i % 70, 1, 1)), 100})
+                        .collect(Collectors.toList()));
+        filmIds.addAll(jdbcTemplate.queryForList("SELECT id FROM film ORDER BY id;", Integer.class));
+
+        List<Object[]> genreLinks = new ArrayList<>();
+        List<Object[]> directorLinks = new ArrayList<>();
+        for (int i = 0; i < filmIds.size(); i++) {
+            genreLinks.add(new Object[]{filmIds.get(i), i % 6 + 1});
+            genreLinks.add(new Object[]{filmIds.get(i), (i + 3) % 6 + 1});
+            directorLinks.add(new Object[]{filmIds.get(i), directorIds.get(i % DIRECTOR_COUNT)});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO film_genre (film_id, genre_id) VALUES (?, ?);", genreLinks);
+        jdbcTemplate.batchUpdate("INSERT INTO film_director (film_id, director_id) VALUES (?, ?);", directorLinks);
+    }
+
+    @Test
+    void compareSingleQueryHydrationWithSeparateLoads() {
+        for (int size : new int[]{1, 100, FILM_COUNT}) {
+            List<Integer> ids = filmIds.subList(0, size);
+
+            Map<Integer, Film> loaded = loadSeparately(ids).stream()
+                    .collect(Collectors.toMap(Film::getId, Function.identity()));
+            for (Film film : filmRepository.findByIds(ids)) {
+                assertEquals(loaded.get(film.getId()).getGenres(), film.getGenres());
+                assertEquals(loaded.get(film.getId()).getDirectors(), film.getDirectors());
+            }
+
+            long separateNanos = measure(() -> loadSeparately(ids));
+            long hydratedNanos = measure(() -> filmRepository.findByIds(ids));
+            log.info("Фильмов: {}, отдельные запросы: {} мкс, один запрос: {} мкс",
+                    size, separateNanos / 1_000, hydratedNanos / 1_000);
+        }
+    }
+
+    private long measure(Runnable load) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            load.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            load.run();
+        }
+        return (System.nanoTime() - start) / MEASURED_ROUNDS;
+    }
+
+    // Прежний путь чтения: строка фильма, затем жанры, режиссеры и лайки отдельными запросами
+    private List<Film> loadSeparately(List<Integer> ids) {
+        String inSql = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        String sqlQuery = String.format("SELECT f.id, f.name, f.description, f.rating_mpa_id, " +
+                "f.duration, f.release_date, f.like_count, r.name AS rating_name FROM film AS f " +
+                "JOIN rating_mpa AS r ON f.rating_mpa_id = r.id WHERE f.id IN (%s);", inSql);
+        List<Film> films = jdbcTemplate.query(sqlQuery, (rs, rowNum) -> Film.builder()
+                .id(rs.getInt("id"))
+                .mpa(new RatingMPA(rs.getInt("rating_mpa_id"), rs.getString("rating_name")))
+                .name(rs.getString("name"))
+                .description(rs.getString("description"))
+                .duration(rs.getInt("duration"))
+                .releaseDate(rs.getDate("release_date").toLocalDate())
+                .amountOfLikes(rs.getInt("like_count"))
+                .build(), ids.toArray());
+        filmGenreRepository.loadGenres(films);
+        filmDirectorRepository.loadDirectors(films);
+        Map<Integer, Integer> likeCountByFilmId = new HashMap<>();
+        jdbcTemplate.query("SELECT * FROM film_like as fl LEFT JOIN \"user\" AS u ON fl.user_id = u.id " +
+                "WHERE u.login IS NOT NULL AND fl.film_id IN (" + inSql + ");", (rs) -> {
+                    likeCountByFilmId.merge(rs.getInt("film_id"), 1, Integer::sum);
+                }, ids.toArray());
+        return films;
+    }
+}
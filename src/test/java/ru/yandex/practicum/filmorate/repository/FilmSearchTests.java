@@ -0,0 +1,100 @@
+package ru.yandex.practicum.filmorate.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.DirectorService;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ru.yandex.practicum.filmorate.repository.TestEntities.film;
+import static ru.yandex.practicum.filmorate.repository.TestEntities.user;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class FilmSearchTests {
+
+    private final FilmService filmService;
+    private final DirectorService directorService;
+    private final UserService userService;
+
+    private Director director;
+    private Film film1;
+    private Film film2;
+    private Film film3;
+
+    @Autowired
+    FilmSearchTests(FilmService filmService, DirectorService directorService, UserService userService) {
+        this.filmService = filmService;
+        this.directorService = directorService;
+        this.userService = userService;
+    }
+
+    @BeforeEach
+    void saveEntities() {
+        director = directorService.create(Director.builder().name("Никита Михалков").build());
+        film1 = filmService.create(film("Утомленные солнцем").build());
+        Film directed = film("Сибирский цирюльник").build();
+        directed.addDirector(director);
+        film2 = filmService.create(directed);
+        directed = film("Солнечный удар").build();
+        directed.addDirector(director);
+        film3 = filmService.create(directed);
+        User user = userService.create(user("login").build());
+        filmService.addLikeToFilm(film3.getId(), user.getId());
+    }
+
+    @Test
+    void shouldFindFilmsBySubstringOfTitleIgnoringCase() {
+        assertEquals(List.of(film3.getId(), film1.getId()), search("СОЛН", "title"));
+        assertEquals(List.of(film1.getId()), search("ленные", "title"));
+        assertEquals(List.of(film2.getId()), search("ик", "title"));
+        assertEquals(List.of(film2.getId()), search("цир", "title"));
+        assertTrue(search("солнце цирюльник", "title").isEmpty());
+    }
+
+    @Test
+    void shouldFindFilmsByDirectorAndTitleRankedByLikes() {
+        assertEquals(List.of(film3.getId(), film2.getId()), search("михал", "director"));
+        assertEquals(List.of(film3.getId(), film1.getId(), film2.getId()), search("н", "title", "director"));
+        assertEquals(List.of(film3.getId()), filmService.searchFilms("н", List.of("title", "director"), 1).stream()
+                .map(Film::getId)
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    void shouldKeepSearchIndexInSyncWithFilmsAndDirectors() {
+        film1.setName("Двенадцать");
+        film1.addDirector(director);
+        filmService.update(film1);
+        assertTrue(search("солнцем", "title").isEmpty());
+        assertEquals(List.of(film1.getId()), search("двенадцать", "title"));
+
+        directorService.update(Director.builder().id(director.getId()).name("Андрей Кончаловский").build());
+        assertTrue(search("михалков", "director").isEmpty());
+        assertEquals(List.of(film3.getId(), film1.getId(), film2.getId()), search("кончалов", "director"));
+
+        filmService.delete(film3);
+        directorService.removeDirectorById(director.getId());
+        assertTrue(search("кончалов", "director").isEmpty());
+        assertEquals(List.of(film2.getId()), search("сибир", "title"));
+    }
+
+    private List<Integer> search(String query, String... by) {
+        return filmService.searchFilms(query, List.of(by), null).stream()
+                .map(Film::getId)
+                .collect(Collectors.toList());
+    }
+}
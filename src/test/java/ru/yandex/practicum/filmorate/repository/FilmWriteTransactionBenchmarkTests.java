@@ -0,0 +1,168 @@
+package ru.yandex.practicum.filmorate.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.FileSystemUtils;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.RatingMPA;
+import ru.yandex.practicum.filmorate.service.DirectorService;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static ru.yandex.practicum.filmorate.repository.TestEntities.film;
+
+// Запуск: mvn test -Dtest=FilmWriteTransactionBenchmarkTests -Dfilmorate.benchmark=true
+// База файловая, как в рабочей конфигурации, чтобы фиксации транзакций доходили до хранилища
+@Slf4j
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:file:./target/benchmark-db/filmorate")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@EnabledIfSystemProperty(named = "filmorate.benchmark", matches = "true")
+class FilmWriteTransactionBenchmarkTests {
+
+    private static final int WARMUP_WRITES = 500;
+    private static final int MEASURED_WRITES = 2_000;
+    private static final int GENRE_COUNT = 3;
+    private static final int DIRECTOR_COUNT = 2;
+
+    private final DirectorService directorService;
+    private final FilmRepository filmRepository;
+    private final FilmGenreRepository filmGenreRepository;
+    private final FilmDirectorRepository filmDirectorRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+
+    private final List<Integer> directorIds = new ArrayList<>();
+
+    @Autowired
+    FilmWriteTransactionBenchmarkTests(
+            DirectorService directorService,
+            @Qualifier("filmRepositoryImpl") FilmRepository filmRepository,
+            FilmGenreRepository filmGenreRepository,
+            FilmDirectorRepository filmDirectorRepository,
+            TransactionTemplate transactionTemplate,
+            JdbcTemplate jdbcTemplate
+    ) {
+        this.directorService = directorService;
+        this.filmRepository = filmRepository;
+        this.filmGenreRepository = filmGenreRepository;
+        this.filmDirectorRepository = filmDirectorRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @BeforeAll
+    static void removeDatabase() throws IOException {
+        FileSystemUtils.deleteRecursively(Path.of("target", "benchmark-db"));
+    }
+
+    @Test
+    void compareTransactionalWritesWithAutoCommit() {
+        for (int i = 0; i < DIRECTOR_COUNT; i++) {
+            directorIds.add(directorService.create(Director.builder().name("director" + i).build()).getId());
+        }
+
+        List<Integer> legacyIds = new ArrayList<>();
+        double legacyCreateRate = measure(i -> legacyIds.add(createLegacy(filmWithReferences(i))));
+        List<Integer> currentIds = new ArrayList<>();
+        double currentCreateRate = measure(i -> currentIds.add(createInTransaction(filmWithReferences(i))));
+        log.info("Создание фильма ({} строк): автофиксация {} операций/с, одна транзакция {} операций/с",
+                1 + GENRE_COUNT + DIRECTOR_COUNT, Math.round(legacyCreateRate), Math.round(currentCreateRate));
+
+        double legacyUpdateRate = measure(i -> updateLegacy(withId(filmWithReferences(i + 1), legacyIds.get(i))));
+        double currentUpdateRate = measure(i -> updateInTransaction(withId(filmWithReferences(i + 1), currentIds.get(i))));
+        log.info("Обновление фильма ({} строк): автофиксация {} операций/с, одна транзакция {} операций/с",
+                1 + 2 * (GENRE_COUNT + DIRECTOR_COUNT), Math.round(legacyUpdateRate), Math.round(currentUpdateRate));
+
+        assertEquals(legacyIds.size() * GENRE_COUNT * 2,
+                jdbcTemplate.queryForObject("SELECT COUNT(*) FROM film_genre;", Integer.class));
+    }
+
+    private double measure(IntFunction<?> write) {
+        for (int i = 0; i < WARMUP_WRITES; i++) {
+            write.apply(i);
+        }
+        long start = System.nanoTime();
+        for (int i = WARMUP_WRITES; i < WARMUP_WRITES + MEASURED_WRITES; i++) {
+            write.apply(i);
+        }
+        return MEASURED_WRITES * 1_000_000_000.0 / (System.nanoTime() - start);
+    }
+
+    // Записи в базу из FilmService.create и FilmService.update: одна транзакция, при создании
+    // связи вставляются пакетом, при обновлении записывается только разница со старым набором.
+    // Обновление индексов в памяти одинаково для обоих путей и в замер не входит
+    private int createInTransaction(Film film) {
+        return transactionTemplate.execute(status -> {
+            Film saved = filmRepository.save(film);
+            filmGenreRepository.saveGenres(saved);
+            filmDirectorRepository.saveDirectors(saved);
+            return saved.getId();
+        });
+    }
+
+    private Film updateInTransaction(Film film) {
+        return transactionTemplate.execute(status -> {
+            Film saved = filmRepository.save(film);
+            filmGenreRepository.syncGenres(saved);
+            filmDirectorRepository.syncDirectors(saved);
+            return saved;
+        });
+    }
+
+    // Прежние пути записи: каждая строка фильма, жанра и режиссера фиксируется отдельно
+    private int createLegacy(Film film) {
+        final int filmId = filmRepository.save(film).getId();
+        insertAssociationsLegacy(film);
+        return filmId;
+    }
+
+    private Film updateLegacy(Film film) {
+        filmRepository.save(film);
+        jdbcTemplate.update("DELETE FROM film_genre WHERE film_id = ?;", film.getId());
+        jdbcTemplate.update("DELETE FROM film_director WHERE film_id = ?;", film.getId());
+        insertAssociationsLegacy(film);
+        return film;
+    }
+
+    private void insertAssociationsLegacy(Film film) {
+        for (Genre genre : film.getGenres()) {
+            jdbcTemplate.update("INSERT INTO film_genre (film_id, genre_id) VALUES (?, ?);",
+                    film.getId(), genre.getId());
+        }
+        for (Director director : film.getDirectors()) {
+            jdbcTemplate.update("INSERT INTO film_director (film_id, director_id) VALUES (?, ?);",
+                    film.getId(), director.getId());
+        }
+    }
+
+    private Film withId(Film film, int id) {
+        film.setId(id);
+        return film;
+    }
+
+    private Film filmWithReferences(int i) {
+        Film film = film("film" + i).mpa(new RatingMPA(i % 5 + 1, null)).build();
+        for (int g = 0; g < GENRE_COUNT; g++) {
+            film.addGenre(new Genre((i + g) % 6 + 1, null));
+        }
+        directorIds.forEach(id -> film.addDirector(Director.builder().id(id).build()));
+        return film;
+    }
+}
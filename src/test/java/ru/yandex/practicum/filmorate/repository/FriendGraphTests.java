@@ -0,0 +1,118 @@
+package ru.yandex.practicum.filmorate.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.index.FriendGraph;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Порог слияния занижен, чтобы изменения проходили и через буфер, и через слияние с CSR,
+// а ширина обхода - чтобы срабатывало ограничение при поиске предложений
+@SpringBootTest(properties = {
+        "filmorate.friends.graph.merge.threshold=3",
+        "filmorate.friends.suggestions.max-fan-out=2"
+})
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class FriendGraphTests {
+
+    private final UserService userService;
+    private final FriendGraph friendGraph;
+
+    private final List<User> users = new ArrayList<>();
+
+    @Autowired
+    FriendGraphTests(UserService userService, FriendGraph friendGraph) {
+        this.userService = userService;
+        this.friendGraph = friendGraph;
+    }
+
+    @BeforeEach
+    void saveUsers() {
+        for (int i = 0; i < 6; i++) {
+            users.add(userService.create(User.builder()
+                    .email("user" + i + "@yandex.ru")
+                    .login("login" + i)
+                    .name("name")
+                    .birthday(LocalDate.of(1990, 1, 1))
+                    .build()));
+        }
+    }
+
+    @Test
+    void shouldServeFriendsFromMemoryAndMatchRebuildFromDatabase() {
+        addFriends(0, 4, 1, 2, 3);
+        addFriends(1, 2, 3, 5);
+        addFriends(5, 0);
+        addFriends(0, 1);
+        userService.removeFriendOfUser(id(0), id(3));
+
+        assertArrayEquals(ids(1, 2, 4), friendGraph.findFriendIds(id(0)));
+        assertArrayEquals(ids(2), friendGraph.findCommonFriendIds(id(0), id(1)));
+        assertEquals(1, friendGraph.countCommonFriends(id(0), id(1)));
+        assertArrayEquals(ids(2, 4), friendGraph.findFriendIdsAfter(id(0), id(1), 5));
+        assertEquals(3, userService.findById(id(0)).getAmountOfFriends());
+        assertEquals(7, friendGraph.edgeCount());
+
+        userService.deleteUserById(id(2));
+        assertArrayEquals(ids(1, 4), friendGraph.findFriendIds(id(0)));
+        assertArrayEquals(ids(3, 5), friendGraph.findFriendIds(id(1)));
+        assertEquals(5, friendGraph.edgeCount());
+
+        int[][] inMemory = snapshot();
+        friendGraph.merge();
+        assertArrayEquals(inMemory, snapshot());
+        friendGraph.rebuild();
+        assertArrayEquals(inMemory, snapshot());
+    }
+
+    @Test
+    void shouldBoundSuggestionTraversalByFanOut() {
+        addFriends(0, 1, 2, 3);
+        addFriends(1, 4, 5);
+        addFriends(2, 5);
+        addFriends(3, 4);
+
+        FriendGraph.Suggestions suggestions = friendGraph.suggest(id(0), 10);
+        assertEquals(List.of(id(5), id(4)), suggestions.getUserIds());
+        assertTrue(suggestions.isPartial());
+
+        FriendGraph.Suggestions complete = friendGraph.suggest(id(2), 10);
+        assertEquals(List.of(), complete.getUserIds());
+        assertFalse(complete.isPartial());
+    }
+
+    private void addFriends(int user, int... friends) {
+        for (int friend : friends) {
+            userService.addFriendToUser(id(user), id(friend));
+        }
+    }
+
+    private int[][] snapshot() {
+        return users.stream()
+                .map(user -> friendGraph.findFriendIds(user.getId()))
+                .toArray(int[][]::new);
+    }
+
+    private int id(int index) {
+        return users.get(index).getId();
+    }
+
+    private int[] ids(int... indexes) {
+        return Arrays.stream(indexes).map(this::id).toArray();
+    }
+}
@@ -0,0 +1,192 @@
+package ru.yandex.practicum.filmorate.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.model.EventOperation;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.LikeOperationResult;
+import ru.yandex.practicum.filmorate.model.LikeOperationStatus;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.LikeBatchService;
+import ru.yandex.practicum.filmorate.service.LikeCountReconciliationService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ru.yandex.practicum.filmorate.repository.TestEntities.film;
+import static ru.yandex.practicum.filmorate.repository.TestEntities.user;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class LikeRepositoryTests {
+
+    private final FilmService filmService;
+    private final UserService userService;
+    private final LikeCountReconciliationService reconciliationService;
+    private final LikeBatchService likeBatchService;
+    private final LikeRepository likeRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    private Film film1;
+    private Film film2;
+    private User user1;
+    private User user2;
+
+    @Autowired
+    LikeRepositoryTests(
+            FilmService filmService,
+            UserService userService,
+            LikeCountReconciliationService reconciliationService,
+            LikeBatchService likeBatchService,
+            LikeRepository likeRepository,
+            JdbcTemplate jdbcTemplate
+    ) {
+        this.filmService = filmService;
+        this.userService = userService;
+        this.reconciliationService = reconciliationService;
+        this.likeBatchService = likeBatchService;
+        this.likeRepository = likeRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @BeforeEach
+    void saveEntities() {
+        film1 = filmService.create(film("film1").build());
+        film2 = filmService.create(film("film2").releaseDate(LocalDate.of(2001, 1, 1)).build());
+        user1 = userService.create(user("login1").build());
+        user2 = userService.create(user("login2").build());
+    }
+
+    @Test
+    void shouldKeepLikeCountersInSyncWithLikes() {
+        filmService.addLikeToFilm(film2.getId(), user1.getId());
+        filmService.addLikeToFilm(film2.getId(), user1.getId());
+        filmService.addLikeToFilm(film2.getId(), user2.getId());
+        filmService.addLikeToFilm(film1.getId(), user1.getId());
+        filmService.removeLikeFromFilm(film1.getId(), user1.getId());
+        filmService.removeLikeFromFilm(film1.getId(), user1.getId());
+
+        assertEquals(2, findLikeCount(film2.getId()));
+        assertEquals(0, findLikeCount(film1.getId()));
+
+        userService.delete(user2);
+        assertEquals(1, findLikeCount(film2.getId()));
+        assertTrue(reconciliationService.reconcile().isEmpty());
+    }
+
+    @Test
+    void shouldOrderPopularFilmsByLikeCounter() {
+        filmService.addLikeToFilm(film2.getId(), user1.getId());
+
+        List<Film> films = filmService.findTopFilmsByLikesOrGenreAndYear(0, 0, 10);
+        assertEquals(film2.getId(), films.get(0).getId());
+        assertEquals(1, films.get(0).getAmountOfLikes());
+        assertEquals(film1.getId(), films.get(1).getId());
+        assertEquals(0, films.get(1).getAmountOfLikes());
+
+        List<Film> filmsOfYear = filmService.findTopFilmsByLikesOrGenreAndYear(0, 2000, 10);
+        assertEquals(1, filmsOfYear.size());
+        assertEquals(film1.getId(), filmsOfYear.get(0).getId());
+    }
+
+    @Test
+    void shouldKeepPopularityIndexInSyncWithFilmChanges() {
+        film1.addGenre(new Genre(2, "Драма"));
+        filmService.update(film1);
+        filmService.addLikeToFilm(film1.getId(), user1.getId());
+
+        List<Film> dramas = filmService.findTopFilmsByLikesOrGenreAndYear(2, 0, 10);
+        assertEquals(1, dramas.size());
+        assertEquals(film1.getId(), dramas.get(0).getId());
+        assertEquals(1, filmService.findTopFilmsByLikesOrGenreAndYear(2, 2000, 10).size());
+        assertTrue(filmService.findTopFilmsByLikesOrGenreAndYear(2, 2001, 10).isEmpty());
+
+        filmService.delete(film1);
+        assertTrue(filmService.findTopFilmsByLikesOrGenreAndYear(2, 0, 10).isEmpty());
+        assertEquals(1, filmService.findTopFilmsByLikesOrGenreAndYear(0, 0, 10).size());
+    }
+
+    @Test
+    void shouldApplyLikeOperationsInBatch() {
+        List<LikeOperationResult> results = likeBatchService.applyLikeOperations(List.of(
+                new LikeOperation(film1.getId(), user1.getId(), EventOperation.ADD),
+                new LikeOperation(film1.getId(), user1.getId(), EventOperation.ADD),
+                new LikeOperation(film1.getId(), user2.getId(), EventOperation.ADD),
+                new LikeOperation(film1.getId(), user2.getId(), EventOperation.REMOVE),
+                new LikeOperation(film2.getId(), user2.getId(), EventOperation.REMOVE),
+                new LikeOperation(-1, user1.getId(), EventOperation.ADD),
+                new LikeOperation(film2.getId(), -1, EventOperation.ADD),
+                new LikeOperation(film2.getId(), user1.getId(), EventOperation.UPDATE)
+        ));
+
+        assertEquals(List.of(
+                LikeOperationStatus.APPLIED,
+                LikeOperationStatus.UNCHANGED,
+                LikeOperationStatus.APPLIED,
+                LikeOperationStatus.APPLIED,
+                LikeOperationStatus.UNCHANGED,
+                LikeOperationStatus.FILM_NOT_FOUND,
+                LikeOperationStatus.USER_NOT_FOUND,
+                LikeOperationStatus.INVALID
+        ), results.stream().map(LikeOperationResult::getStatus).collect(Collectors.toList()));
+        assertEquals(1, findLikeCount(film1.getId()));
+        assertEquals(0, findLikeCount(film2.getId()));
+        assertEquals(1, userService.getUserFeed(user1.getId(), null, null).getItems().size());
+        assertEquals(2, userService.getUserFeed(user2.getId(), null, null).getItems().size());
+        assertTrue(reconciliationService.reconcile().isEmpty());
+    }
+
+    @Test
+    void shouldRejectNonPositiveChunkSize() {
+        assertThrows(IllegalArgumentException.class, () -> new LikeBatchService(
+                null, null, null, null, null, null, null, null, 0));
+    }
+
+    @Test
+    void shouldReportAndRepairLikeCounterDrift() {
+        filmService.addLikeToFilm(film1.getId(), user1.getId());
+        jdbcTemplate.update("UPDATE film SET like_count = 5 WHERE id = ?;", film1.getId());
+
+        Map<Integer, Integer> drifts = reconciliationService.reconcile();
+
+        assertEquals(Map.of(film1.getId(), 4), drifts);
+        assertEquals(1, findLikeCount(film1.getId()));
+        assertTrue(reconciliationService.reconcile().isEmpty());
+    }
+
+    @Test
+    void shouldLookUpLikesForIdSetsOfAnySize() {
+        filmService.addLikeToFilm(film1.getId(), user1.getId());
+        List<Integer> filmIds = IntStream.rangeClosed(-10_000, film2.getId())
+                .boxed()
+                .collect(Collectors.toList());
+
+        assertEquals(Map.of(film1.getId(), Set.of(user1.getId())),
+                likeRepository.findLikedUserIds(filmIds, List.of(user1.getId(), user2.getId())));
+        assertTrue(likeRepository.findLikedUserIds(filmIds, List.of(-1)).isEmpty());
+        assertTrue(likeRepository.findLikedUserIds(List.of(), List.of(user1.getId())).isEmpty());
+    }
+
+    private int findLikeCount(int filmId) {
+        Integer likeCount = jdbcTemplate.queryForObject(
+                "SELECT like_count FROM film WHERE id = ?;", Integer.class, filmId);
+        return likeCount == null ? 0 : likeCount;
+    }
+}
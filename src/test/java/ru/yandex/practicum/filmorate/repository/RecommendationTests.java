@@ -0,0 +1,170 @@
+package ru.yandex.practicum.filmorate.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.exception.UserDoesNotExistException;
+import ru.yandex.practicum.filmorate.index.FilmRecommendationIndex;
+import ru.yandex.practicum.filmorate.model.EventOperation;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.Recommendations;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.LikeBatchService;
+import ru.yandex.practicum.filmorate.service.RecommendationStore;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ru.yandex.practicum.filmorate.repository.TestEntities.film;
+import static ru.yandex.practicum.filmorate.repository.TestEntities.user;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class RecommendationTests {
+
+    private final FilmService filmService;
+    private final UserService userService;
+    private final LikeBatchService likeBatchService;
+    private final FilmRecommendationIndex filmRecommendationIndex;
+    private final RecommendationStore recommendationStore;
+
+    private final List<Film> films = new ArrayList<>();
+    private final List<User> users = new ArrayList<>();
+
+    @Autowired
+    RecommendationTests(
+            FilmService filmService,
+            UserService userService,
+            LikeBatchService likeBatchService,
+            FilmRecommendationIndex filmRecommendationIndex,
+            RecommendationStore recommendationStore
+    ) {
+        this.filmService = filmService;
+        this.userService = userService;
+        this.likeBatchService = likeBatchService;
+        this.filmRecommendationIndex = filmRecommendationIndex;
+        this.recommendationStore = recommendationStore;
+    }
+
+    @BeforeEach
+    void saveEntities() {
+        for (int i = 0; i < 5; i++) {
+            films.add(filmService.create(film("film" + i).build()));
+            users.add(userService.create(user("login" + i).build()));
+        }
+    }
+
+    @Test
+    void shouldRecommendFilmsOfNearestNeighbour() {
+        like(0, 0, 1, 2);
+        like(1, 0, 1, 3);
+        like(2, 0, 4);
+
+        assertEquals(List.of(films.get(3).getId()), findRecommendedFilmIds(0, 1));
+        assertEquals(List.of(users.get(1).getId(), users.get(2).getId()),
+                filmRecommendationIndex.recommend(users.get(0).getId(), 5).getNeighbourIds());
+    }
+
+    @Test
+    void shouldRankFilmsOfTopNeighboursByMatches() {
+        like(0, 0, 1, 2);
+        like(1, 0, 1, 3);
+        like(2, 0, 3, 4);
+
+        assertEquals(List.of(films.get(3).getId(), films.get(4).getId()), findRecommendedFilmIds(0, 2));
+    }
+
+    @Test
+    void shouldUpdateRecommendationsFromLikeWritePaths() {
+        like(0, 0);
+        like(1, 0, 1);
+        assertEquals(List.of(films.get(1).getId()), findRecommendedFilmIds(0, 1));
+
+        filmService.removeLikeFromFilm(films.get(0).getId(), users.get(1).getId());
+        assertTrue(findRecommendedFilmIds(0, 1).isEmpty());
+
+        likeBatchService.applyLikeOperations(List.of(
+                new LikeOperation(films.get(0).getId(), users.get(2).getId(), EventOperation.ADD),
+                new LikeOperation(films.get(2).getId(), users.get(2).getId(), EventOperation.ADD)
+        ));
+        // Новый поклонник фильма пользователя не был его соседом, поэтому сохраненные рекомендации
+        // не помечаются устаревшими; индекс после пакетной записи проверяется прямым расчетом
+        assertTrue(findRecommendedFilmIds(0, 1).isEmpty());
+        assertEquals(List.of(films.get(2).getId()), findRecommendedFilmIds(0, 2));
+
+        filmService.delete(films.get(2));
+        assertTrue(findRecommendedFilmIds(0, 1).isEmpty());
+
+        userService.delete(users.get(0));
+        assertTrue(filmRecommendationIndex.recommend(users.get(2).getId(), 5).getNeighbourIds().isEmpty());
+    }
+
+    @Test
+    void shouldServeStoredRecommendationsUntilRefresh() {
+        like(0, 0);
+        like(1, 0, 1);
+
+        Recommendations computed = filmService.getRecommendedFilms(users.get(0).getId(), null);
+        assertEquals(List.of(films.get(1).getId()), getFilmIds(computed));
+        assertFalse(computed.isStale());
+
+        like(1, 2);
+        Recommendations stored = filmService.getRecommendedFilms(users.get(0).getId(), null);
+        assertEquals(List.of(films.get(1).getId()), getFilmIds(stored));
+        assertEquals(computed.getComputedAt(), stored.getComputedAt());
+        assertTrue(stored.isStale());
+
+        assertEquals(1, recommendationStore.refresh().join());
+        Recommendations refreshed = filmService.getRecommendedFilms(users.get(0).getId(), null);
+        assertEquals(List.of(films.get(1).getId(), films.get(2).getId()), getFilmIds(refreshed));
+        assertFalse(refreshed.isStale());
+
+        like(3, 4);
+        like(4, 0);
+        assertFalse(filmService.getRecommendedFilms(users.get(0).getId(), null).isStale());
+    }
+
+    @Test
+    void shouldFindFilmsLikedByAllUsersRankedByLikes() {
+        like(0, 0, 1, 2, 3);
+        like(1, 1, 2, 3);
+        like(2, 1, 3, 4);
+        like(3, 3);
+
+        List<Integer> userIds = List.of(users.get(0).getId(), users.get(1).getId(), users.get(2).getId());
+        assertEquals(List.of(films.get(3).getId(), films.get(1).getId()), filmService.getCommonFilms(userIds).stream()
+                .map(Film::getId)
+                .collect(Collectors.toList()));
+        assertTrue(filmService.getCommonFilms(List.of(users.get(0).getId(), users.get(4).getId())).isEmpty());
+        assertThrows(UserDoesNotExistException.class, () -> filmService.getCommonFilms(List.of(-1, users.get(0).getId())));
+    }
+
+    private void like(int userIndex, int... filmIndexes) {
+        for (int filmIndex : filmIndexes) {
+            filmService.addLikeToFilm(films.get(filmIndex).getId(), users.get(userIndex).getId());
+        }
+    }
+
+    private List<Integer> findRecommendedFilmIds(int userIndex, int neighbours) {
+        recommendationStore.refresh().join();
+        return getFilmIds(filmService.getRecommendedFilms(users.get(userIndex).getId(), neighbours));
+    }
+
+    private List<Integer> getFilmIds(Recommendations recommendations) {
+        return recommendations.getFilms().stream()
+                .map(Film::getId)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,104 @@
+package ru.yandex.practicum.filmorate.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.exception.DirectorDoesNotExistException;
+import ru.yandex.practicum.filmorate.exception.GenreDoesNotExistException;
+import ru.yandex.practicum.filmorate.exception.RatingDoesNotExistException;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.RatingMPA;
+import ru.yandex.practicum.filmorate.service.DirectorService;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.GenreService;
+import ru.yandex.practicum.filmorate.service.RatingService;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ru.yandex.practicum.filmorate.repository.TestEntities.film;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class ReferenceCatalogTests {
+
+    private final FilmService filmService;
+    private final DirectorService directorService;
+    private final GenreService genreService;
+    private final RatingService ratingService;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    ReferenceCatalogTests(
+            FilmService filmService,
+            DirectorService directorService,
+            GenreService genreService,
+            RatingService ratingService,
+            JdbcTemplate jdbcTemplate
+    ) {
+        this.filmService = filmService;
+        this.directorService = directorService;
+        this.genreService = genreService;
+        this.ratingService = ratingService;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Test
+    void shouldShareReferenceInstancesBetweenFilms() {
+        Film film1 = film("film").mpa(new RatingMPA(3, null)).build();
+        film1.addGenre(new Genre(2, null));
+        Film film2 = film("film").mpa(new RatingMPA(3, null)).build();
+        film2.addGenre(new Genre(2, null));
+        film1 = filmService.findById(filmService.create(film1).getId());
+        film2 = filmService.findById(filmService.create(film2).getId());
+
+        assertEquals("PG-13", film1.getMpa().getName());
+        assertSame(ratingService.findById(3), film1.getMpa());
+        assertSame(film1.getMpa(), film2.getMpa());
+        assertSame(genreService.findById(2), film1.getGenres().iterator().next());
+        assertSame(film1.getGenres().iterator().next(), film2.getGenres().iterator().next());
+        assertEquals(6, genreService.findAll().size());
+    }
+
+    @Test
+    void shouldResolveDirectorsFromCatalogAfterDirectorWrites() {
+        Director director = directorService.create(Director.builder().name("Алексей Балабанов").build());
+        Film film = film("film").mpa(new RatingMPA(1, null)).build();
+        film.addDirector(Director.builder().id(director.getId()).build());
+        final int filmId = filmService.create(film).getId();
+        assertEquals("Алексей Балабанов", filmService.findById(filmId).getDirectors().iterator().next().getName());
+
+        directorService.update(Director.builder().id(director.getId()).name("Балабанов").build());
+        assertEquals("Балабанов", filmService.findById(filmId).getDirectors().iterator().next().getName());
+
+        directorService.removeDirectorById(director.getId());
+        assertTrue(filmService.findById(filmId).getDirectors().isEmpty());
+        assertThrows(DirectorDoesNotExistException.class, () -> directorService.findById(director.getId()));
+    }
+
+    @Test
+    void shouldRejectUnknownReferenceIds() {
+        Film withUnknownGenre = film("film").mpa(new RatingMPA(1, null)).build();
+        withUnknownGenre.addGenre(new Genre(7, null));
+
+        assertThrows(GenreDoesNotExistException.class, () -> filmService.create(withUnknownGenre));
+        assertThrows(RatingDoesNotExistException.class, () -> filmService.create(film("film").mpa(new RatingMPA(6, null)).build()));
+        assertThrows(GenreDoesNotExistException.class, () -> filmService.findTopFilmsByLikesOrGenreAndYear(7, 0, 10));
+    }
+
+    @Test
+    void shouldFailOnStoredRatingMissingFromCatalog() {
+        final int filmId = filmService.create(film("film").build()).getId();
+        jdbcTemplate.update("INSERT INTO rating_mpa (id, name) VALUES (6, 'NC-18');");
+        jdbcTemplate.update("UPDATE film SET rating_mpa_id = 6 WHERE id = ?;", filmId);
+
+        assertThrows(RatingDoesNotExistException.class, () -> filmService.findById(filmId));
+    }
+}
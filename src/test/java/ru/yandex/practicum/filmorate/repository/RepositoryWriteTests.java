@@ -0,0 +1,142 @@
+package ru.yandex.practicum.filmorate.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.exception.DirectorDoesNotExistException;
+import ru.yandex.practicum.filmorate.exception.FilmDoesNotExistException;
+import ru.yandex.practicum.filmorate.exception.ReviewDoesNotExistException;
+import ru.yandex.practicum.filmorate.exception.UserDoesNotExistException;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Review;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.DirectorService;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.ReviewService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static ru.yandex.practicum.filmorate.repository.TestEntities.film;
+import static ru.yandex.practicum.filmorate.repository.TestEntities.user;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class RepositoryWriteTests {
+
+    private final FilmService filmService;
+    private final UserService userService;
+    private final ReviewService reviewService;
+    private final DirectorService directorService;
+
+    @Autowired
+    RepositoryWriteTests(
+            FilmService filmService,
+            UserService userService,
+            ReviewService reviewService,
+            DirectorService directorService
+    ) {
+        this.filmService = filmService;
+        this.userService = userService;
+        this.reviewService = reviewService;
+        this.directorService = directorService;
+    }
+
+    @Test
+    void shouldReturnWrittenStateWithoutReadBack() {
+        User user = userService.create(user("login").build());
+        Film film = filmService.create(film("film").build());
+        filmService.addLikeToFilm(film.getId(), user.getId());
+
+        Film update = film("film").build();
+        update.setId(film.getId());
+        update.setName("updated");
+        Film updatedFilm = filmService.update(update);
+        assertEquals("updated", updatedFilm.getName());
+        assertEquals("G", updatedFilm.getMpa().getName());
+        assertEquals(1, updatedFilm.getAmountOfLikes());
+        assertEquals(updatedFilm, filmService.findById(film.getId()));
+
+        Review review = reviewService.create(Review.builder()
+                .content("content")
+                .isPositive(true)
+                .userId(user.getId())
+                .filmId(film.getId())
+                .build());
+        Review updatedReview = reviewService.update(Review.builder()
+                .id(review.getId())
+                .content("updated")
+                .isPositive(false)
+                .userId(user.getId())
+                .filmId(film.getId())
+                .build());
+        assertEquals("updated", updatedReview.getContent());
+        assertEquals(user.getId(), updatedReview.getUserId());
+    }
+
+    @Test
+    void shouldSyncAssociationsToRequestedSets() {
+        Director director1 = directorService.create(Director.builder().name("director1").build());
+        Director director2 = directorService.create(Director.builder().name("director2").build());
+        Film film = film("film").build();
+        film.addGenre(new Genre(1, null));
+        film.addGenre(new Genre(2, null));
+        film.addDirector(Director.builder().id(director1.getId()).build());
+        final int filmId = filmService.create(film).getId();
+
+        Film update = film("film").build();
+        update.setId(filmId);
+        update.addGenre(new Genre(2, null));
+        update.addGenre(new Genre(3, null));
+        update.addDirector(Director.builder().id(director2.getId()).build());
+        filmService.update(update);
+
+        Film updatedFilm = filmService.findById(filmId);
+        assertEquals(Set.of(2, 3), updatedFilm.getGenres().stream().map(Genre::getId).collect(Collectors.toSet()));
+        assertEquals(Set.of(director2.getId()), updatedFilm.getDirectors().stream()
+                .map(Director::getId)
+                .collect(Collectors.toSet()));
+        assertEquals(updatedFilm, filmService.update(update));
+
+        User user = userService.create(user("login").build());
+        User friend1 = userService.create(user("login").build());
+        User friend2 = userService.create(user("login").build());
+        userService.addFriendToUser(user.getId(), friend1.getId());
+        userService.addFriendToUser(user.getId(), friend2.getId());
+        userService.addFriendToUser(user.getId(), friend2.getId());
+        assertEquals(Set.of(friend1.getId(), friend2.getId()), userService.findById(user.getId()).getFriends());
+    }
+
+    @Test
+    void shouldRejectUpdatesOfUnknownIds() {
+        User user = userService.create(user("login").build());
+        Film film = filmService.create(film("film").build());
+
+        User unknownUser = user("login").build();
+        unknownUser.setId(user.getId() + 1);
+        assertThrows(UserDoesNotExistException.class, () -> userService.update(unknownUser));
+
+        Film unknownFilm = film("film").build();
+        unknownFilm.setId(film.getId() + 1);
+        assertThrows(FilmDoesNotExistException.class, () -> filmService.update(unknownFilm));
+
+        assertThrows(ReviewDoesNotExistException.class, () -> reviewService.update(Review.builder()
+                .id(1)
+                .content("content")
+                .isPositive(true)
+                .userId(user.getId())
+                .filmId(film.getId())
+                .build()));
+        assertThrows(DirectorDoesNotExistException.class,
+                () -> directorService.update(Director.builder().id(1).name("name").build()));
+        assertEquals(1, userService.findPage(0, null).getItems().size());
+    }
+}
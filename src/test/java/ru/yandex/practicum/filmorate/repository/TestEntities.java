@@ -0,0 +1,31 @@
+package ru.yandex.practicum.filmorate.repository;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.RatingMPA;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+
+// Заготовки сущностей с заполненными обязательными полями, отличия задаются в самих тестах через builder
+final class TestEntities {
+
+    private TestEntities() {
+    }
+
+    static Film.FilmBuilder film(String name) {
+        return Film.builder()
+                .name(name)
+                .description("description")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .mpa(new RatingMPA(1, "G"));
+    }
+
+    static User.UserBuilder user(String login) {
+        return User.builder()
+                .email(login + "@yandex.ru")
+                .login(login)
+                .name(login)
+                .birthday(LocalDate.of(1990, 1, 1));
+    }
+}
@@ -0,0 +1,145 @@
+package ru.yandex.practicum.filmorate.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.EventOperation;
+import ru.yandex.practicum.filmorate.model.EventType;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.RatingMPA;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static ru.yandex.practicum.filmorate.repository.TestEntities.film;
+import static ru.yandex.practicum.filmorate.repository.TestEntities.user;
+
+// Запуск: mvn test -Dtest=WriteThroughputBenchmarkTests -Dfilmorate.benchmark=true
+@Slf4j
+@SpringBootTest
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@EnabledIfSystemProperty(named = "filmorate.benchmark", matches = "true")
+class WriteThroughputBenchmarkTests {
+
+    private static final int WARMUP_INSERTS = 1_000;
+    private static final int MEASURED_INSERTS = 5_000;
+
+    private final FilmRepository filmRepository;
+    private final UserRepository userRepository;
+    private final EventRepository eventRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    private int userId;
+
+    @Autowired
+    WriteThroughputBenchmarkTests(
+            @Qualifier("filmRepositoryImpl") FilmRepository filmRepository,
+            @Qualifier("userRepositoryImpl") UserRepository userRepository,
+            EventRepository eventRepository,
+            JdbcTemplate jdbcTemplate
+    ) {
+        this.filmRepository = filmRepository;
+        this.userRepository = userRepository;
+        this.eventRepository = eventRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @BeforeEach
+    void saveUser() {
+        userId = userRepository.save(user("user0").build()).getId();
+    }
+
+    @Test
+    void compareCompiledInsertsWithPerCallSimpleJdbcInsert() {
+        report("фильмы", this::saveFilmLegacy, i -> filmRepository.save(film("film" + i).mpa(new RatingMPA(i % 5 + 1, null)).build()));
+        report("пользователи", this::saveUserLegacy, i -> userRepository.save(user("user" + i).build()));
+        report("события", this::saveEventLegacy, i -> eventRepository.save(makeEvent(i)));
+
+        final int expectedEvents = 2 * (WARMUP_INSERTS + MEASURED_INSERTS);
+        assertEquals(expectedEvents, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM event;", Integer.class));
+    }
+
+    private void report(String entity, IntConsumer legacy, IntConsumer current) {
+        double legacyRate = measure(legacy);
+        double currentRate = measure(current);
+        log.info("{}: SimpleJdbcInsert на каждую вставку {} вставок/с, подготовленная вставка {} вставок/с",
+                entity, Math.round(legacyRate), Math.round(currentRate));
+    }
+
+    private double measure(IntConsumer insert) {
+        for (int i = 0; i < WARMUP_INSERTS; i++) {
+            insert.accept(i);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_INSERTS; i++) {
+            insert.accept(i);
+        }
+        return MEASURED_INSERTS * 1_000_000_000.0 / (System.nanoTime() - start);
+    }
+
+    // Прежние пути сохранения: проверка существования, SimpleJdbcInsert с compile() и, для фильмов
+    // и пользователей, повторное чтение сохраненной строки
+    private void saveFilmLegacy(int i) {
+        Film film = film("film" + i).mpa(new RatingMPA(i % 5 + 1, null)).build();
+        filmRepository.findById(film.getId());
+        SimpleJdbcInsert insert = new SimpleJdbcInsert(jdbcTemplate).withSchemaName("public")
+                .withTableName("film")
+                .usingColumns("rating_mpa_id", "name", "description", "release_date", "duration")
+                .usingGeneratedKeyColumns("id");
+        insert.compile();
+        int id = (int) insert.executeAndReturnKey(Map.of("rating_mpa_id", film.getMpa().getId(),
+                "name", film.getName(), "description", film.getDescription(),
+                "release_date", film.getReleaseDate(), "duration", film.getDuration()));
+        filmRepository.findById(id);
+    }
+
+    private void saveUserLegacy(int i) {
+        User user = user("user" + i).build();
+        userRepository.findById(user.getId());
+        SimpleJdbcInsert insert = new SimpleJdbcInsert(jdbcTemplate)
+                .withSchemaName("public")
+                .withTableName("\"user\"")
+                .usingColumns("email", "login", "name", "birthday")
+                .usingGeneratedKeyColumns("id");
+        insert.compile();
+        int id = (int) insert.executeAndReturnKey(Map.of("email", user.getEmail(), "login", user.getLogin(),
+                "name", user.getName(), "birthday", user.getBirthday()));
+        userRepository.findById(id);
+    }
+
+    private void saveEventLegacy(int i) {
+        Event event = makeEvent(i);
+        eventRepository.findById(event.getId());
+        SimpleJdbcInsert insert = new SimpleJdbcInsert(jdbcTemplate)
+                .withSchemaName("public")
+                .withTableName("event")
+                .usingColumns("timestamp", "user_id", "event_type", "operation", "entity_id")
+                .usingGeneratedKeyColumns("event_id");
+        insert.compile();
+        insert.executeAndReturnKey(Map.of("timestamp", Instant.now().toEpochMilli(),
+                "user_id", event.getUserId(), "event_type", event.getType(),
+                "operation", event.getOperation(), "entity_id", event.getEntityId()));
+    }
+
+    private Event makeEvent(int i) {
+        return Event.builder()
+                .userId(userId)
+                .type(EventType.LIKE)
+                .operation(EventOperation.ADD)
+                .entityId(i)
+                .build();
+    }
+}
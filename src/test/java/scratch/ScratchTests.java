@@ -0,0 +1,51 @@
+package scratch;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+
+@SpringBootTest(classes = FilmorateApplication.class)
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+@DirtiesContext
+public class ScratchTests {
+    @Autowired
+    MockMvc mvc;
+
+    String body(org.springframework.test.web.servlet.ResultActions r) throws Exception {
+        return r.andReturn().getResponse().getStatus() + " " + r.andReturn().getResponse().getContentAsString();
+    }
+
+    @Test
+    void run() throws Exception {
+        System.out.println("OUT " + body(mvc.perform(post("/directors").contentType(MediaType.APPLICATION_JSON).content("{\"name\":\"dir\"}"))));
+        for (int i = 0; i < 3; i++) {
+            System.out.println("OUT " + body(mvc.perform(post("/films").contentType(MediaType.APPLICATION_JSON).content(
+                "{\"name\":\"film" + i + "\",\"description\":\"d\",\"releaseDate\":\"19" + (90 - i) + "-03-25\",\"duration\":100,\"mpa\":{\"id\":1},\"genres\":[{\"id\":1}],\"directors\":[{\"id\":1}]}"))));
+        }
+        System.out.println("OUT " + body(mvc.perform(post("/users").contentType(MediaType.APPLICATION_JSON).content("{\"login\":\"a\",\"name\":\"a\",\"email\":\"a@a.ru\",\"birthday\":\"1990-01-01\"}"))));
+        System.out.println("OUT " + body(mvc.perform(put("/films/2/like/1"))));
+        System.out.println("OUT " + body(mvc.perform(get("/films/director/1?sortBy=likes"))));
+        System.out.println("OUT " + body(mvc.perform(get("/films/director/1?sortBy=year&limit=2&offset=0"))));
+        System.out.println("OUT " + body(mvc.perform(get("/films/director/1?sortBy=year&limit=2&offset=2"))));
+        System.out.println("OUT " + body(mvc.perform(get("/films/popular?count=2"))));
+        System.out.println("OUT " + body(mvc.perform(post("/users").contentType(MediaType.APPLICATION_JSON).content("{\"login\":\"b\",\"name\":\"b\",\"email\":\"b@a.ru\",\"birthday\":\"1990-01-01\"}"))));
+        mvc.perform(put("/films/2/like/2")); mvc.perform(put("/films/3/like/2"));
+        org.springframework.mock.web.MockHttpServletResponse r = mvc.perform(get("/users/1/recommendations")).andReturn().getResponse();
+        System.out.println("OUT rec " + r.getStatus() + " " + r.getHeader("Age") + " " + r.getHeader("X-Recommendations-Stale") + " " + r.getContentAsString().length());
+        mvc.perform(put("/films/1/like/2"));
+        r = mvc.perform(get("/users/1/recommendations")).andReturn().getResponse();
+        System.out.println("OUT rec " + r.getStatus() + " " + r.getHeader("Age") + " " + r.getHeader("X-Recommendations-Stale"));
+        System.out.println("OUT " + body(mvc.perform(get("/users/1/recommendations?neighbours=0"))));
+        System.out.println("OUT " + body(mvc.perform(get("/users/99/recommendations"))));
+    }
+}